@@ -0,0 +1,76 @@
+package br.com.foods.teal.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.com.foods.teal.dto.ProductDTO;
+import br.com.foods.teal.model.Category;
+import br.com.foods.teal.model.Product;
+import br.com.foods.teal.model.User;
+
+/**
+ * Conversões de modelo para DTO e de texto para {@link Category}
+ *
+ * @author Caio Pereira Leal
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark {
+
+	private Product product;
+
+	private List<String> categories;
+
+	@Setup
+	public void setUp() {
+		User user = new User( "u1", "Vendedor", "vendedor@email.com", "99999", "12345678900" );
+		product = new Product( "Suco de Maçã", Category.Frutas, "Garrafa de vidro", "l", 12.5,
+				new ArrayList<>( List.of( "/product/images/1-a.jpg", "/product/images/1-b.jpg" ) ), 5, user );
+		product.setId( 1L );
+		product.setCreateDate( LocalDateTime.now() );
+		categories = List.of( "outros", "Frutas" );
+	}
+
+	@Benchmark
+	public ProductDTO productFromModel() {
+		return ProductDTO.fromModel( product );
+	}
+
+	/**
+	 * Primeira categoria, pelo nome exato
+	 */
+	@Benchmark
+	public Category categoryFromStringFirst() {
+		return Category.fromString( "Frutas" );
+	}
+
+	/**
+	 * Última categoria, ignorando maiúsculas: percorre todas
+	 */
+	@Benchmark
+	public Category categoryFromStringLast() {
+		return Category.fromString( "outros" );
+	}
+
+	@Benchmark
+	public Category categoryFromStringList() {
+		return Category.fromStringList( categories );
+	}
+}
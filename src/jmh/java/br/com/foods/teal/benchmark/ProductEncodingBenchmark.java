@@ -0,0 +1,96 @@
+package br.com.foods.teal.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import br.com.foods.teal.codec.DtoCodecModule;
+import br.com.foods.teal.dto.ProductDTO;
+import br.com.foods.teal.model.Category;
+
+/**
+ * Codificação de um catálogo de {@code products} produtos em JSON, CBOR e
+ * Smile, com e sem gzip, usando mapeadores criados como os da aplicação. O
+ * tamanho do corpo em cada formato é impresso na preparação.
+ *
+ * @author Caio Pereira Leal
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductEncodingBenchmark {
+
+	@Param({ "json", "cbor", "smile" })
+	private String format;
+
+	@Param("10000")
+	private int products;
+
+	private ObjectWriter writer;
+
+	private List<ProductDTO> catalog;
+
+	@Setup
+	public void setUp() throws IOException {
+		Jackson2ObjectMapperBuilder builder = switch ( format ) {
+			case "cbor" -> Jackson2ObjectMapperBuilder.cbor().factory( new CBORFactory() );
+			case "smile" -> Jackson2ObjectMapperBuilder.smile().factory( new SmileFactory() );
+			default -> Jackson2ObjectMapperBuilder.json();
+		};
+		writer = builder.modulesToInstall( new DtoCodecModule() ).build().writer();
+
+		Category[] categories = Category.values();
+		catalog = new ArrayList<>( products );
+		for ( int i = 1; i <= products; i++ ) {
+			catalog.add( new ProductDTO( (long) i, "Produto " + i, categories[i % categories.length].toString(),
+					"Descrição do produto " + i + " colhido na semana", "kg",
+					List.of( "/product/images/" + i + "-a.jpg", "/product/images/" + i + "-b.jpg" ),
+					i * 7919 % 100000 / 100.0, i % 50, "u" + i % 1000, LocalDateTime.now(), null ) );
+		}
+
+		byte[] body = encode();
+		System.out.printf( "%n%s: %,d bytes, %,d bytes com gzip%n", format, body.length, gzip( body ).length );
+	}
+
+	@Benchmark
+	public byte[] encode() throws IOException {
+		return writer.writeValueAsBytes( catalog );
+	}
+
+	@Benchmark
+	public byte[] encodeGzip() throws IOException {
+		return gzip( writer.writeValueAsBytes( catalog ) );
+	}
+
+	private static byte[] gzip(byte[] body) throws IOException {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream( body.length / 4 + 64 );
+		try ( GZIPOutputStream gzip = new GZIPOutputStream( compressed ) ) {
+			gzip.write( body );
+		}
+		return compressed.toByteArray();
+	}
+}
@@ -0,0 +1,113 @@
+package br.com.foods.teal.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import br.com.foods.teal.codec.DtoCodecModule;
+import br.com.foods.teal.dto.ProductDTO;
+import br.com.foods.teal.dto.UserDTO;
+
+/**
+ * Serialização JSON de {@link ProductDTO} e leitura de {@link UserDTO}, com a
+ * serialização escrita à mão da aplicação ({@code codec}) e com a padrão do
+ * Jackson ({@code reflective}). Os bytes alocados por operação saem com
+ * {@code -Djmh.args="-prof gc"}.
+ *
+ * @author Caio Pereira Leal
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductJsonBenchmark {
+
+	@Param({ "codec", "reflective" })
+	private String mapper;
+
+	private ObjectWriter productWriter;
+
+	private ObjectWriter pageWriter;
+
+	private ObjectReader productReader;
+
+	private ObjectReader userReader;
+
+	private ProductDTO product;
+
+	private List<ProductDTO> page;
+
+	private byte[] json;
+
+	private byte[] userJson;
+
+	@Setup
+	public void setUp() {
+		Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+		if ( mapper.equals( "codec" ) ) {
+			builder.modulesToInstall( new DtoCodecModule() );
+		}
+		var objectMapper = builder.build();
+		productWriter = objectMapper.writerFor( ProductDTO.class );
+		pageWriter = objectMapper.writerFor( objectMapper.getTypeFactory().constructCollectionType( List.class,
+				ProductDTO.class ) );
+		productReader = objectMapper.readerFor( ProductDTO.class );
+		userReader = objectMapper.readerFor( UserDTO.class );
+
+		page = new ArrayList<>();
+		for ( int i = 1; i <= 50; i++ ) {
+			page.add( new ProductDTO( (long) i, "Produto " + i, "Frutas", "Descrição do produto " + i, "kg",
+					List.of( "/product/images/" + i + "-a.jpg", "/product/images/" + i + "-b.jpg" ),
+					i * 7919 % 100000 / 100.0, i % 50, "u" + i, LocalDateTime.now(), null ) );
+		}
+		product = page.get( 0 );
+		json = """
+				{"name":"Suco de Maçã","categories":"Frutas","description":"Garrafa de vidro",
+				"unit":"l","price":12.5,"quantity":5}
+				""".getBytes( StandardCharsets.UTF_8 );
+		userJson = """
+				{"id":"42","name":"Vendedor","email":"vendedor@email.com","phone":"99999","cpf":"12345678900"}
+				""".getBytes( StandardCharsets.UTF_8 );
+	}
+
+	@Benchmark
+	public byte[] writeProduct() throws IOException {
+		return productWriter.writeValueAsBytes( product );
+	}
+
+	@Benchmark
+	public byte[] writePage() throws IOException {
+		return pageWriter.writeValueAsBytes( page );
+	}
+
+	@Benchmark
+	public ProductDTO readProduct() throws IOException {
+		return productReader.readValue( json );
+	}
+
+	@Benchmark
+	public UserDTO readUser() throws IOException {
+		return userReader.readValue( userJson );
+	}
+}
@@ -0,0 +1,154 @@
+package br.com.foods.teal.benchmark;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import br.com.foods.teal.TealApplication;
+import br.com.foods.teal.dto.ProductFilter;
+import br.com.foods.teal.dto.ProductRow;
+import br.com.foods.teal.model.Category;
+import br.com.foods.teal.repository.ProductRepository;
+import br.com.foods.teal.repository.ProductSpecifications;
+
+/**
+ * Consultas de {@link ProductSpecifications} sobre uma {@code tb_product}
+ * com {@code rows} linhas, com e sem os índices declarados em
+ * {@link br.com.foods.teal.model.Product}. A aplicação é iniciada no perfil
+ * {@code test} e cada consulta passa por
+ * {@link ProductRepository#scrollRows(org.springframework.data.jpa.domain.Specification, ScrollPosition, Sort, Limit)},
+ * como na listagem. Os parâmetros mudam a cada execução para que o banco não
+ * reaproveite o resultado anterior.
+ *
+ * @author Caio Pereira Leal
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ProductQueryBenchmark {
+
+	private static final int USERS = 10_000;
+
+	private static final int PAGE_SIZE = 50;
+
+	private static final Sort BY_ID = Sort.by( "id" );
+
+	private static final Sort NEWEST_FIRST = Sort.by( Sort.Direction.DESC, "createDate", "id" );
+
+	private static final LocalDateTime END = LocalDateTime.of( 2025, 1, 1, 23, 59, 59 );
+
+	@Param("1000000")
+	private int rows;
+
+	@Param({ "true", "false" })
+	private boolean indexed;
+
+	private ConfigurableApplicationContext context;
+
+	private ProductRepository repository;
+
+	private int run;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		context = new SpringApplicationBuilder( TealApplication.class ).run(
+				"--spring.profiles.active=test",
+				"--server.port=0",
+				"--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+				"--spring.jpa.show-sql=false",
+				"--spring.jpa.properties.hibernate.generate_statistics=false",
+				"--spring.h2.console.enabled=false",
+				"--logging.level.root=WARN" );
+		repository = context.getBean( ProductRepository.class );
+
+		// inserido direto no banco: pelo repositório a carga de milhões de linhas levaria minutos
+		JdbcTemplate jdbc = context.getBean( JdbcTemplate.class );
+		jdbc.update( """
+				insert into tb_user (id, name, email, phone, cpf, email_key, phone_key, cpf_key)
+				select 'u' || x, 'Vendedor ' || x, 'v' || x || '@email.com', '9' || x, '0' || x,
+					'v' || x || '@email.com', '9' || x, '0' || x
+				from system_range(0, cast(? as int) - 1)
+				""", USERS );
+		Timestamp end = Timestamp.valueOf( END );
+		jdbc.update( """
+				insert into tb_product (name, category, description, unit, price, quantity, user_id, create_date, update_date)
+				select 'Produto ' || x,
+					casewhen(mod(x, 5) = 0, 'Frutas', casewhen(mod(x, 5) = 1, 'Verduras',
+						casewhen(mod(x, 5) = 2, 'Legumes', casewhen(mod(x, 5) = 3, 'Carnes', 'Outros')))),
+					'Descrição ' || x, 'kg', mod(x * 7919, 100000) / 100.0, mod(x, 50),
+					'u' || mod(x, cast(? as int)), dateadd('SECOND', -mod(x, 86400), cast(? as timestamp)),
+					dateadd('SECOND', -mod(x * 31, 86400), cast(? as timestamp))
+				from system_range(1, cast(? as int))
+				""", USERS, end, end, rows );
+		if ( !indexed ) {
+			// o H2 usa idx_product_user na chave estrangeira do vendedor e criaria outro índice no lugar
+			jdbc.queryForList( "select constraint_name from information_schema.table_constraints "
+					+ "where table_name = 'TB_PRODUCT' and constraint_type = 'FOREIGN KEY'", String.class )
+					.forEach( constraint -> jdbc.execute( "alter table tb_product drop constraint " + constraint ) );
+			jdbc.execute( "drop index idx_product_user" );
+			jdbc.execute( "drop index idx_product_category_price" );
+			jdbc.execute( "drop index idx_product_update_date" );
+		}
+		jdbc.execute( "analyze" );
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public Window<ProductRow> ofUser() {
+		return query( ProductFilter.ofUser( "u" + run++ * 37 % USERS ), BY_ID );
+	}
+
+	@Benchmark
+	public Window<ProductRow> categoryAndPrice() {
+		double min = run++ * 13 % 900;
+		return query( new ProductFilter( Category.Frutas, min, min + 0.1, null, null, null, null ), BY_ID );
+	}
+
+	/**
+	 * Vendedores múltiplos de 5 só têm frutas
+	 */
+	@Benchmark
+	public Window<ProductRow> userCategoryInStock() {
+		String userId = "u" + run++ * 37 % ( USERS / 5 ) * 5;
+		return query( new ProductFilter( Category.Frutas, null, null, true, userId, null, null ), BY_ID );
+	}
+
+	@Benchmark
+	public Window<ProductRow> createdRecently() {
+		LocalDateTime from = END.minusHours( 1 ).plusSeconds( run++ % 3600 );
+		return query( new ProductFilter( null, null, null, null, null, from, null ), NEWEST_FIRST );
+	}
+
+	private Window<ProductRow> query(ProductFilter filter, Sort sort) {
+		return repository.scrollRows( ProductSpecifications.matching( filter ), ScrollPosition.keyset(), sort,
+				Limit.of( PAGE_SIZE ) );
+	}
+}
@@ -0,0 +1,123 @@
+package br.com.foods.teal.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import br.com.foods.teal.TealApplication;
+import br.com.foods.teal.dto.ProductDTO;
+import br.com.foods.teal.model.Category;
+import br.com.foods.teal.model.Product;
+import br.com.foods.teal.model.User;
+import br.com.foods.teal.pagination.CursorPage;
+import br.com.foods.teal.repository.ProductRepository;
+import br.com.foods.teal.repository.UserRepository;
+import br.com.foods.teal.services.ProductService;
+
+/**
+ * Consultas de {@link ProductService} sobre um H2 em memória, com a
+ * aplicação iniciada no perfil {@code test} e um catálogo de
+ * {@code products} produtos
+ *
+ * @author Caio Pereira Leal
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ProductServiceBenchmark {
+
+	private static final int USERS = 100;
+
+	@Param("10000")
+	private int products;
+
+	private ConfigurableApplicationContext context;
+
+	private ProductService service;
+
+	private List<Long> ids;
+
+	private String deepCursor;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		context = new SpringApplicationBuilder( TealApplication.class ).run(
+				"--spring.profiles.active=test",
+				"--server.port=0",
+				"--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+				"--spring.jpa.show-sql=false",
+				"--spring.jpa.properties.hibernate.generate_statistics=false",
+				"--spring.h2.console.enabled=false",
+				"--logging.level.root=WARN" );
+		service = context.getBean( ProductService.class );
+
+		UserRepository userRepository = context.getBean( UserRepository.class );
+		List<User> users = new ArrayList<>();
+		for ( int i = 0; i < USERS; i++ ) {
+			users.add( userRepository.save( new User( "u" + i, "Vendedor " + i, "v" + i + "@email.com", "9" + i,
+					"0" + i ) ) );
+		}
+		List<Product> catalog = new ArrayList<>();
+		for ( int i = 0; i < products; i++ ) {
+			catalog.add( new Product( "Produto " + i, Category.values()[i % Category.values().length],
+					"Descrição " + i, "kg", (double) ( i % 1000 ),
+					new ArrayList<>( List.of( "/product/images/" + i + "-a.jpg", "/product/images/" + i + "-b.jpg" ) ),
+					i % 50, users.get( i % USERS ) ) );
+		}
+		ids = context.getBean( ProductRepository.class ).saveAll( catalog ).stream().map( Product::getId ).toList();
+
+		CursorPage<ProductDTO> page = service.findAllProducts( null, 50, null );
+		for ( int i = 0; i < products / 100; i++ ) {
+			page = service.findAllProducts( page.nextCursor(), 50, null );
+		}
+		deepCursor = page.nextCursor();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public CursorPage<ProductDTO> findAllProductsFirstPage() {
+		return service.findAllProducts( null, 50, null );
+	}
+
+	/**
+	 * Página no meio do catálogo, que com keyset custa o mesmo que a primeira
+	 */
+	@Benchmark
+	public CursorPage<ProductDTO> findAllProductsDeepPage() {
+		return service.findAllProducts( deepCursor, 50, null );
+	}
+
+	@Benchmark
+	public CursorPage<ProductDTO> findAllProductsByPrice() {
+		return service.findAllProducts( null, 50, "price,desc" );
+	}
+
+	@Benchmark
+	public ProductDTO findProductById() {
+		return service.findProductById( ids.get( ThreadLocalRandom.current().nextInt( ids.size() ) ) );
+	}
+}
@@ -0,0 +1,87 @@
+package br.com.foods.teal.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Guarda a latência de cada requisição de uma rota e calcula os percentis
+ * ao final da carga
+ *
+ * @author Caio Pereira Leal
+ */
+class LatencyRecorder {
+
+	private long[] latencies = new long[1024];
+
+	private int count;
+
+	private int errors;
+
+	/**
+	 * Registra uma requisição
+	 *
+	 * @param nanos latência desde o horário previsto de envio
+	 * @param error true se a requisição falhou ou respondeu com erro
+	 */
+	synchronized void record(long nanos, boolean error) {
+		if ( count == latencies.length ) {
+			latencies = Arrays.copyOf( latencies, count * 2 );
+		}
+		latencies[count++] = nanos;
+		if ( error ) {
+			errors++;
+		}
+	}
+
+	/**
+	 * Quantidade de requisições registradas
+	 *
+	 * @return requisições
+	 */
+	synchronized int requests() {
+		return count;
+	}
+
+	/**
+	 * Soma as requisições registradas em outro registro
+	 *
+	 * @param other registro de destino
+	 */
+	synchronized void copyTo(LatencyRecorder other) {
+		for ( int i = 0; i < count; i++ ) {
+			other.record( latencies[i], false );
+		}
+		synchronized ( other ) {
+			other.errors += errors;
+		}
+	}
+
+	/**
+	 * Resume as requisições registradas
+	 *
+	 * @param name nome da rota
+	 * @param seconds duração da medição
+	 * @return resumo
+	 */
+	synchronized Summary summarize(String name, double seconds) {
+		long[] sorted = Arrays.copyOf( latencies, count );
+		Arrays.sort( sorted );
+		return new Summary( name, count, errors, count == 0 ? 0 : 100.0 * errors / count, count / seconds,
+				percentile( sorted, 0.50 ), percentile( sorted, 0.95 ), percentile( sorted, 0.99 ),
+				count == 0 ? 0 : sorted[count - 1] / 1_000_000.0 );
+	}
+
+	private static double percentile(long[] sorted, double quantile) {
+		if ( sorted.length == 0 ) {
+			return 0;
+		}
+		int index = (int) Math.ceil( quantile * sorted.length ) - 1;
+		return sorted[Math.max( index, 0 )] / 1_000_000.0;
+	}
+
+	/**
+	 * Resumo da carga em uma rota, com as latências em milissegundos
+	 */
+	record Summary(String endpoint, int requests, int errors, double errorRate, double throughput, double p50,
+			double p95, double p99, double max) {
+	}
+}
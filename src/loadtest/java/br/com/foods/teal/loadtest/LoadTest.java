@@ -0,0 +1,232 @@
+package br.com.foods.teal.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import br.com.foods.teal.TealApplication;
+import br.com.foods.teal.loadtest.LatencyRecorder.Summary;
+import br.com.foods.teal.model.Category;
+import br.com.foods.teal.model.Product;
+import br.com.foods.teal.model.User;
+import br.com.foods.teal.repository.ProductRepository;
+import br.com.foods.teal.repository.UserRepository;
+import br.com.foods.teal.services.ProductIndexService;
+
+/**
+ * Teste de carga HTTP das rotas de produto e usuário. Inicia a aplicação no
+ * perfil {@code test} (H2 em memória), cadastra o catálogo inicial e envia
+ * requisições em modelo aberto: as chegadas seguem um processo de Poisson
+ * com a taxa configurada, sem esperar as respostas anteriores, e a latência
+ * é medida a partir do horário previsto de envio. Assim uma aplicação lenta
+ * aparece na latência em vez de reduzir a carga. Requisições que passam do
+ * tempo limite, ou que continuam sem resposta ao fim da espera, contam como
+ * erro com a latência decorrida até então.
+ *
+ * Executar com {@code ./mvnw -Pload-test verify -Dload.rate=200}. Configuração por
+ * propriedades de sistema:
+ * <ul>
+ * <li>{@code load.products} e {@code load.users}: tamanho do catálogo inicial (1000 e 50)</li>
+ * <li>{@code load.rate}: requisições por segundo (100)</li>
+ * <li>{@code load.warmup} e {@code load.duration}: segundos de aquecimento e de medição (10 e 30)</li>
+ * <li>{@code load.mix}: peso de cada operação, como {@code list:30,detail:30,create:10}</li>
+ * <li>{@code load.image-size}: bytes da imagem enviada nos cadastros (32768)</li>
+ * <li>{@code load.timeout}: segundos de espera por cada resposta (10)</li>
+ * <li>{@code load.report}: arquivo JSON do resultado ({@code target/load-test-report.json})</li>
+ * </ul>
+ *
+ * @author Caio Pereira Leal
+ */
+public class LoadTest {
+
+	private static final String DEFAULT_MIX = "list:30,detail:30,user-products:10,user-list:5,user-detail:5,"
+			+ "create:10,update:5,delete:5";
+
+	public static void main(String[] args) throws Exception {
+		int products = Integer.getInteger( "load.products", 1000 );
+		int users = Integer.getInteger( "load.users", 50 );
+		double rate = Double.parseDouble( System.getProperty( "load.rate", "100" ) );
+		int warmup = Integer.getInteger( "load.warmup", 10 );
+		int duration = Integer.getInteger( "load.duration", 30 );
+		List<String> mix = parseMix( System.getProperty( "load.mix", DEFAULT_MIX ) );
+		int imageSize = Integer.getInteger( "load.image-size", 32 * 1024 );
+		Duration timeout = Duration.ofSeconds( Integer.getInteger( "load.timeout", 10 ) );
+		Path report = Paths.get( System.getProperty( "load.report", "target/load-test-report.json" ) );
+
+		Path uploads = Files.createTempDirectory( "teal-load-test" );
+		ConfigurableApplicationContext context = SpringApplication.run( TealApplication.class,
+				"--spring.profiles.active=test",
+				"--server.port=0",
+				"--spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+				"--spring.jpa.show-sql=false",
+				"--spring.h2.console.enabled=false",
+				"--app.upload.dir=" + uploads,
+				"--logging.level.root=WARN" );
+		try {
+			LoadTestClient client = seed( context, products, users, imageSize, timeout );
+
+			System.out.printf( "aquecimento: %d s a %.0f req/s%n", warmup, rate );
+			run( client, mix, rate, warmup, timeout );
+			System.out.printf( "medição: %d s a %.0f req/s%n", duration, rate );
+			Map<String, LatencyRecorder> recorders = run( client, mix, rate, duration, timeout );
+
+			List<Summary> summaries = new ArrayList<>();
+			LatencyRecorder total = new LatencyRecorder();
+			recorders.forEach( (name, recorder) -> summaries.add( recorder.summarize( name, duration ) ) );
+			recorders.values().forEach( recorder -> recorder.copyTo( total ) );
+			summaries.sort( Comparator.comparing( Summary::endpoint ) );
+			summaries.add( total.summarize( "total", duration ) );
+
+			print( summaries );
+			Map<String, Object> result = new LinkedHashMap<>();
+			result.put( "products", products );
+			result.put( "users", users );
+			result.put( "rate", rate );
+			result.put( "durationSeconds", duration );
+			result.put( "timeoutSeconds", timeout.toSeconds() );
+			result.put( "mix", System.getProperty( "load.mix", DEFAULT_MIX ) );
+			result.put( "endpoints", summaries );
+			Files.createDirectories( report.toAbsolutePath().getParent() );
+			new ObjectMapper().enable( SerializationFeature.INDENT_OUTPUT ).writeValue( report.toFile(), result );
+			System.out.println( "resultado salvo em " + report.toAbsolutePath() );
+		} finally {
+			context.close();
+			deleteRecursively( uploads );
+		}
+	}
+
+	/**
+	 * Cadastra o catálogo inicial direto pelos repositórios
+	 */
+	private static LoadTestClient seed(ConfigurableApplicationContext context, int products, int users,
+			int imageSize, Duration timeout) {
+		List<User> seedUsers = new ArrayList<>();
+		UserRepository userRepository = context.getBean( UserRepository.class );
+		for ( int i = 0; i < users; i++ ) {
+			seedUsers.add( userRepository.save( new User( "u" + i, "Vendedor " + i, "v" + i + "@email.com",
+					"9" + i, "0" + i ) ) );
+		}
+		List<Product> catalog = new ArrayList<>();
+		Category[] categories = Category.values();
+		for ( int i = 0; i < products; i++ ) {
+			catalog.add( new Product( "Produto " + i, categories[i % categories.length], "Descrição " + i, "kg",
+					(double) ( i % 1000 ), new ArrayList<>( List.of( "/product-images/" + i + ".png" ) ), i % 50,
+					seedUsers.get( i % users ) ) );
+		}
+		List<Long> ids = context.getBean( ProductRepository.class ).saveAll( catalog ).stream()
+				.map( Product::getId ).toList();
+		context.getBean( ProductIndexService.class ).rebuild();
+
+		String port = context.getEnvironment().getProperty( "local.server.port" );
+		return new LoadTestClient( URI.create( "http://localhost:" + port ), ids,
+				seedUsers.stream().map( User::getId ).toList(), imageSize, timeout );
+	}
+
+	/**
+	 * Envia requisições em modelo aberto durante o tempo informado e espera
+	 * as respostas pendentes por até um tempo limite; as que não terminarem
+	 * são registradas como erro
+	 */
+	private static Map<String, LatencyRecorder> run(LoadTestClient client, List<String> mix, double rate,
+			int seconds, Duration timeout) throws InterruptedException {
+		Map<String, LatencyRecorder> recorders = new LinkedHashMap<>();
+		LoadTestClient.OPERATIONS.forEach( operation -> recorders.put( operation, new LatencyRecorder() ) );
+		Set<Pending> inFlight = ConcurrentHashMap.newKeySet();
+
+		long start = System.nanoTime();
+		long end = start + TimeUnit.SECONDS.toNanos( seconds );
+		long intended = start;
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		while ( intended < end ) {
+			long wait = intended - System.nanoTime();
+			if ( wait > 0 ) {
+				LockSupport.parkNanos( wait );
+			}
+			String operation = client.resolve( mix.get( random.nextInt( mix.size() ) ) );
+			Pending pending = new Pending( recorders.get( operation ), intended, new AtomicBoolean() );
+			inFlight.add( pending );
+			client.send( operation ).whenComplete( (status, error) -> {
+				pending.record( error != null || status >= 400 );
+				inFlight.remove( pending );
+			} );
+			intended += (long) ( -Math.log( 1 - random.nextDouble() ) / rate * 1_000_000_000L );
+		}
+
+		// o tempo limite do cliente vale até o cabeçalho da resposta; um corpo que não termina fica para cá
+		long deadline = System.nanoTime() + timeout.toNanos() + TimeUnit.SECONDS.toNanos( 5 );
+		while ( !inFlight.isEmpty() && System.nanoTime() < deadline ) {
+			Thread.sleep( 10 );
+		}
+		if ( !inFlight.isEmpty() ) {
+			System.out.printf( "%d requisições sem resposta, contadas como erro%n", inFlight.size() );
+			inFlight.forEach( pending -> pending.record( true ) );
+		}
+		recorders.values().removeIf( recorder -> recorder.requests() == 0 );
+		return recorders;
+	}
+
+	/**
+	 * Requisição enviada, registrada uma única vez: pela resposta ou como
+	 * erro ao fim da espera
+	 */
+	private record Pending(LatencyRecorder recorder, long scheduled, AtomicBoolean recorded) {
+
+		void record(boolean error) {
+			if ( recorded.compareAndSet( false, true ) ) {
+				recorder.record( System.nanoTime() - scheduled, error );
+			}
+		}
+	}
+
+	private static List<String> parseMix(String mix) {
+		List<String> weighted = new ArrayList<>();
+		for ( String entry : mix.split( "," ) ) {
+			String[] parts = entry.trim().split( ":" );
+			if ( !LoadTestClient.OPERATIONS.contains( parts[0] ) ) {
+				throw new IllegalArgumentException( "Operação inválida: " + parts[0] );
+			}
+			for ( int i = 0; i < Integer.parseInt( parts[1] ); i++ ) {
+				weighted.add( parts[0] );
+			}
+		}
+		return weighted;
+	}
+
+	private static void print(List<Summary> summaries) {
+		System.out.printf( "%-14s %9s %7s %8s %9s %9s %9s %9s%n", "rota", "req", "erros", "req/s", "p50 ms",
+				"p95 ms", "p99 ms", "max ms" );
+		for ( Summary s : summaries ) {
+			System.out.printf( "%-14s %9d %6.2f%% %8.1f %9.2f %9.2f %9.2f %9.2f%n", s.endpoint(), s.requests(),
+					s.errorRate(), s.throughput(), s.p50(), s.p95(), s.p99(), s.max() );
+		}
+	}
+
+	private static void deleteRecursively(Path directory) throws IOException {
+		try ( Stream<Path> paths = Files.walk( directory ) ) {
+			for ( Path path : paths.sorted( Comparator.reverseOrder() ).toList() ) {
+				Files.deleteIfExists( path );
+			}
+		}
+	}
+}
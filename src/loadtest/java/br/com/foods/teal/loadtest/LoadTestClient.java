@@ -0,0 +1,186 @@
+package br.com.foods.teal.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Envia as requisições de cada operação da carga para a aplicação. Os
+ * produtos removidos são sempre produtos criados pela própria carga, para
+ * que o catálogo inicial continue disponível para as leituras.
+ *
+ * @author Caio Pereira Leal
+ */
+class LoadTestClient {
+
+	static final String LIST = "list";
+	static final String DETAIL = "detail";
+	static final String USER_PRODUCTS = "user-products";
+	static final String USER_LIST = "user-list";
+	static final String USER_DETAIL = "user-detail";
+	static final String CREATE = "create";
+	static final String UPDATE = "update";
+	static final String DELETE = "delete";
+
+	static final List<String> OPERATIONS = List.of( LIST, DETAIL, USER_PRODUCTS, USER_LIST, USER_DETAIL, CREATE,
+			UPDATE, DELETE );
+
+	private static final String BOUNDARY = "teal-load-test-boundary";
+
+	private final HttpClient http = HttpClient.newBuilder()
+			.version( HttpClient.Version.HTTP_1_1 )
+			.connectTimeout( Duration.ofSeconds( 5 ) )
+			.build();
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private final URI base;
+
+	private final List<Long> productIds;
+
+	private final List<String> userIds;
+
+	private final int imageSize;
+
+	private final Duration timeout;
+
+	private final Queue<Long> created = new ConcurrentLinkedQueue<>();
+
+	private final AtomicLong sequence = new AtomicLong();
+
+	/**
+	 * Cria o cliente
+	 *
+	 * @param base endereço da aplicação
+	 * @param productIds produtos do catálogo inicial, usados nas leituras e atualizações
+	 * @param userIds usuários do catálogo inicial
+	 * @param imageSize tamanho em bytes da imagem enviada nos cadastros e atualizações
+	 * @param timeout espera máxima por cada resposta
+	 */
+	LoadTestClient(URI base, List<Long> productIds, List<String> userIds, int imageSize, Duration timeout) {
+		this.base = base;
+		this.productIds = productIds;
+		this.userIds = userIds;
+		this.imageSize = imageSize;
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Operação que será de fato executada: sem produtos criados pela carga
+	 * para remover, a remoção vira um cadastro
+	 *
+	 * @param operation operação sorteada
+	 * @return operação a executar
+	 */
+	String resolve(String operation) {
+		return operation.equals( DELETE ) && created.isEmpty() ? CREATE : operation;
+	}
+
+	/**
+	 * Envia a requisição da operação
+	 *
+	 * @param operation operação já resolvida
+	 * @return status da resposta, ou falha com {@link java.net.http.HttpTimeoutException}
+	 *         quando passa do tempo limite
+	 */
+	CompletableFuture<Integer> send(String operation) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		return switch ( operation ) {
+			case LIST -> get( "/product?size=50" + ( random.nextBoolean() ? "" : "&sort=price,desc" ) );
+			case DETAIL -> get( "/product/" + randomProduct() );
+			case USER_PRODUCTS -> get( "/product/user/" + randomUser() + "?size=50" );
+			case USER_LIST -> get( "/user?size=50" );
+			case USER_DETAIL -> get( "/user/" + randomUser() );
+			case CREATE -> create();
+			case UPDATE -> update( randomProduct() );
+			case DELETE -> delete();
+			default -> throw new IllegalArgumentException( "Operação inválida: " + operation );
+		};
+	}
+
+	private CompletableFuture<Integer> get(String path) {
+		return send( request( path ).GET().build() );
+	}
+
+	private CompletableFuture<Integer> create() {
+		HttpRequest request = multipart( "/product?userId=" + randomUser(), null, "POST" );
+		return http.sendAsync( request, HttpResponse.BodyHandlers.ofByteArray() ).thenApply( response -> {
+			if ( response.statusCode() == 201 ) {
+				try {
+					created.add( mapper.readTree( response.body() ).get( "id" ).asLong() );
+				} catch ( Exception e ) {
+					return 599;
+				}
+			}
+			return response.statusCode();
+		} );
+	}
+
+	private CompletableFuture<Integer> update(long id) {
+		return send( multipart( "/product/" + id + "?userId=" + randomUser(), id, "PUT" ) );
+	}
+
+	private CompletableFuture<Integer> delete() {
+		Long id = created.poll();
+		if ( id == null ) {
+			return create();
+		}
+		return send( request( "/product/" + id ).DELETE().build() );
+	}
+
+	private CompletableFuture<Integer> send(HttpRequest request) {
+		return http.sendAsync( request, HttpResponse.BodyHandlers.discarding() ).thenApply( HttpResponse::statusCode );
+	}
+
+	private HttpRequest multipart(String path, Long id, String method) {
+		long n = sequence.incrementAndGet();
+		String product = """
+				{"id":%s,"name":"Carga %d","categories":"Frutas","description":"Produto do teste de carga",
+				"unit":"kg","price":%d.5,"quantity":%d}
+				""".formatted( id, n, n % 100, n % 50 );
+		byte[] image = new byte[imageSize];
+		ThreadLocalRandom.current().nextBytes( image );
+
+		ByteArrayOutputStream body = new ByteArrayOutputStream( imageSize + 1024 );
+		part( body, "Content-Disposition: form-data; name=\"product\"\r\nContent-Type: application/json",
+				product.getBytes( StandardCharsets.UTF_8 ) );
+		part( body, "Content-Disposition: form-data; name=\"images\"; filename=\"carga-" + n
+				+ ".png\"\r\nContent-Type: image/png", image );
+		body.writeBytes( ( "--" + BOUNDARY + "--\r\n" ).getBytes( StandardCharsets.US_ASCII ) );
+
+		return request( path )
+				.header( "Content-Type", "multipart/form-data; boundary=" + BOUNDARY )
+				.method( method, HttpRequest.BodyPublishers.ofByteArray( body.toByteArray() ) )
+				.build();
+	}
+
+	private HttpRequest.Builder request(String path) {
+		return HttpRequest.newBuilder( base.resolve( path ) ).timeout( timeout );
+	}
+
+	private static void part(ByteArrayOutputStream body, String headers, byte[] content) {
+		body.writeBytes( ( "--" + BOUNDARY + "\r\n" + headers + "\r\n\r\n" ).getBytes( StandardCharsets.UTF_8 ) );
+		body.writeBytes( content );
+		body.writeBytes( "\r\n".getBytes( StandardCharsets.US_ASCII ) );
+	}
+
+	private long randomProduct() {
+		return productIds.get( ThreadLocalRandom.current().nextInt( productIds.size() ) );
+	}
+
+	private String randomUser() {
+		return userIds.get( ThreadLocalRandom.current().nextInt( userIds.size() ) );
+	}
+}
@@ -0,0 +1,29 @@
+package br.com.foods.teal.codec;
+
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+import br.com.foods.teal.dto.ProductDTO;
+import br.com.foods.teal.dto.UserDTO;
+
+/**
+ * Módulo do Jackson com a serialização escrita à mão de {@link ProductDTO} e
+ * {@link UserDTO}. Registrado como bean, é aplicado pelo Spring Boot ao
+ * ObjectMapper da aplicação e aos mapeadores dos formatos binários.
+ *
+ * @author Caio Pereira Leal
+ */
+public class DtoCodecModule extends SimpleModule {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Cria o módulo com os serializadores dos DTOs
+	 */
+	public DtoCodecModule() {
+		super( "teal-dto-codecs" );
+		addSerializer( ProductDTO.class, new ProductDTOCodec.Serializer() );
+		addDeserializer( ProductDTO.class, new ProductDTOCodec.Deserializer() );
+		addSerializer( UserDTO.class, new UserDTOCodec.Serializer() );
+		addDeserializer( UserDTO.class, new UserDTOCodec.Deserializer() );
+	}
+}
@@ -0,0 +1,146 @@
+package br.com.foods.teal.codec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+
+import br.com.foods.teal.dto.ProductDTO;
+
+/**
+ * Serialização de {@link ProductDTO} escrita à mão, com os nomes dos campos
+ * pré-codificados e sem introspecção do record. Segue as mesmas regras da
+ * serialização padrão: campos nulos são escritos, as datas são ignoradas e
+ * campos desconhecidos na entrada são descartados.
+ *
+ * @author Caio Pereira Leal
+ */
+final class ProductDTOCodec {
+
+	private static final SerializedString ID = new SerializedString( "id" );
+	private static final SerializedString NAME = new SerializedString( "name" );
+	private static final SerializedString CATEGORIES = new SerializedString( "categories" );
+	private static final SerializedString DESCRIPTION = new SerializedString( "description" );
+	private static final SerializedString UNIT = new SerializedString( "unit" );
+	private static final SerializedString IMAGES = new SerializedString( "images" );
+	private static final SerializedString PRICE = new SerializedString( "price" );
+	private static final SerializedString QUANTITY = new SerializedString( "quantity" );
+	private static final SerializedString USER_ID = new SerializedString( "userId" );
+
+	private ProductDTOCodec() {
+	}
+
+	static final class Serializer extends JsonSerializer<ProductDTO> {
+
+		@Override
+		public void serialize(ProductDTO product, JsonGenerator gen, SerializerProvider serializers)
+				throws IOException {
+			gen.writeStartObject( product );
+			gen.writeFieldName( ID );
+			Values.writeNumber( gen, product.id() );
+			gen.writeFieldName( NAME );
+			gen.writeString( product.name() );
+			gen.writeFieldName( CATEGORIES );
+			gen.writeString( product.categories() );
+			gen.writeFieldName( DESCRIPTION );
+			gen.writeString( product.description() );
+			gen.writeFieldName( UNIT );
+			gen.writeString( product.unit() );
+			gen.writeFieldName( IMAGES );
+			writeImages( gen, product.images() );
+			gen.writeFieldName( PRICE );
+			Values.writeNumber( gen, product.price() );
+			gen.writeFieldName( QUANTITY );
+			Values.writeNumber( gen, product.quantity() );
+			gen.writeFieldName( USER_ID );
+			gen.writeString( product.userId() );
+			gen.writeEndObject();
+		}
+
+		@Override
+		public Class<ProductDTO> handledType() {
+			return ProductDTO.class;
+		}
+
+		private static void writeImages(JsonGenerator gen, List<String> images) throws IOException {
+			if ( images == null ) {
+				gen.writeNull();
+				return;
+			}
+			gen.writeStartArray( images, images.size() );
+			for ( String image : images ) {
+				gen.writeString( image );
+			}
+			gen.writeEndArray();
+		}
+	}
+
+	static final class Deserializer extends JsonDeserializer<ProductDTO> {
+
+		private static final JavaType IMAGES_TYPE = TypeFactory.defaultInstance()
+				.constructCollectionType( List.class, String.class );
+
+		@Override
+		public ProductDTO deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+			Values.startObject( p, ctxt, ProductDTO.class );
+
+			Long id = null;
+			String name = null;
+			String categories = null;
+			String description = null;
+			String unit = null;
+			List<String> images = null;
+			Double price = null;
+			Integer quantity = null;
+			String userId = null;
+			for ( JsonToken token = p.currentToken(); token == JsonToken.FIELD_NAME; token = p.nextToken() ) {
+				String field = p.currentName();
+				p.nextToken();
+				switch ( field ) {
+					case "id" -> id = Values.readLong( p, ctxt );
+					case "name" -> name = Values.readString( p, ctxt );
+					case "categories" -> categories = Values.readString( p, ctxt );
+					case "description" -> description = Values.readString( p, ctxt );
+					case "unit" -> unit = Values.readString( p, ctxt );
+					case "images" -> images = readImages( p, ctxt );
+					case "price" -> price = Values.readDouble( p, ctxt );
+					case "quantity" -> quantity = Values.readInteger( p, ctxt );
+					case "userId" -> userId = Values.readString( p, ctxt );
+					case "createDate", "updateDate" -> p.skipChildren();
+					default -> ctxt.handleUnknownProperty( p, this, ProductDTO.class, field );
+				}
+			}
+			return new ProductDTO( id, name, categories, description, unit, images, price, quantity, userId,
+					null, null );
+		}
+
+		@Override
+		public Class<?> handledType() {
+			return ProductDTO.class;
+		}
+
+		private static List<String> readImages(JsonParser p, DeserializationContext ctxt) throws IOException {
+			if ( p.currentToken() == JsonToken.VALUE_NULL ) {
+				return null;
+			}
+			if ( p.currentToken() != JsonToken.START_ARRAY ) {
+				return ctxt.readValue( p, IMAGES_TYPE );
+			}
+			List<String> images = new ArrayList<>();
+			while ( p.nextToken() != JsonToken.END_ARRAY ) {
+				images.add( Values.readString( p, ctxt ) );
+			}
+			return images;
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package br.com.foods.teal.codec;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import br.com.foods.teal.dto.UserDTO;
+
+/**
+ * Serialização de {@link UserDTO} escrita à mão, com os nomes dos campos
+ * pré-codificados e sem introspecção do record. Segue as mesmas regras da
+ * serialização padrão: campos nulos são escritos, as datas são ignoradas e
+ * campos desconhecidos na entrada são descartados.
+ *
+ * @author Caio Pereira Leal
+ */
+final class UserDTOCodec {
+
+	private static final SerializedString ID = new SerializedString( "id" );
+	private static final SerializedString NAME = new SerializedString( "name" );
+	private static final SerializedString EMAIL = new SerializedString( "email" );
+	private static final SerializedString PHONE = new SerializedString( "phone" );
+	private static final SerializedString CPF = new SerializedString( "cpf" );
+
+	private UserDTOCodec() {
+	}
+
+	static final class Serializer extends JsonSerializer<UserDTO> {
+
+		@Override
+		public void serialize(UserDTO user, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+			gen.writeStartObject( user );
+			gen.writeFieldName( ID );
+			gen.writeString( user.id() );
+			gen.writeFieldName( NAME );
+			gen.writeString( user.name() );
+			gen.writeFieldName( EMAIL );
+			gen.writeString( user.email() );
+			gen.writeFieldName( PHONE );
+			gen.writeString( user.phone() );
+			gen.writeFieldName( CPF );
+			gen.writeString( user.cpf() );
+			gen.writeEndObject();
+		}
+
+		@Override
+		public Class<UserDTO> handledType() {
+			return UserDTO.class;
+		}
+	}
+
+	static final class Deserializer extends JsonDeserializer<UserDTO> {
+
+		@Override
+		public UserDTO deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+			Values.startObject( p, ctxt, UserDTO.class );
+
+			String id = null;
+			String name = null;
+			String email = null;
+			String phone = null;
+			String cpf = null;
+			for ( JsonToken token = p.currentToken(); token == JsonToken.FIELD_NAME; token = p.nextToken() ) {
+				String field = p.currentName();
+				p.nextToken();
+				switch ( field ) {
+					case "id" -> id = Values.readString( p, ctxt );
+					case "name" -> name = Values.readString( p, ctxt );
+					case "email" -> email = Values.readString( p, ctxt );
+					case "phone" -> phone = Values.readString( p, ctxt );
+					case "cpf" -> cpf = Values.readString( p, ctxt );
+					case "createDate", "updateDate" -> p.skipChildren();
+					default -> ctxt.handleUnknownProperty( p, this, UserDTO.class, field );
+				}
+			}
+			return new UserDTO( id, name, email, phone, cpf, null, null );
+		}
+
+		@Override
+		public Class<?> handledType() {
+			return UserDTO.class;
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package br.com.foods.teal.codec;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+
+/**
+ * Leitura e escrita dos valores simples dos DTOs. O caso comum (token do
+ * tipo esperado) é lido direto do parser; os demais passam pelo contexto do
+ * Jackson para manter as mesmas coerções da serialização padrão.
+ *
+ * @author Caio Pereira Leal
+ */
+final class Values {
+
+	private Values() {
+	}
+
+	/**
+	 * Posiciona o parser no primeiro campo do objeto
+	 */
+	static void startObject(JsonParser p, DeserializationContext ctxt, Class<?> type) throws IOException {
+		if ( p.currentToken() == JsonToken.START_OBJECT ) {
+			p.nextToken();
+		} else if ( p.currentToken() != JsonToken.FIELD_NAME ) {
+			ctxt.handleUnexpectedToken( type, p );
+		}
+	}
+
+	static String readString(JsonParser p, DeserializationContext ctxt) throws IOException {
+		return switch ( p.currentToken() ) {
+			case VALUE_STRING -> p.getText();
+			case VALUE_NULL -> null;
+			default -> ctxt.readValue( p, String.class );
+		};
+	}
+
+	static Long readLong(JsonParser p, DeserializationContext ctxt) throws IOException {
+		return switch ( p.currentToken() ) {
+			case VALUE_NUMBER_INT -> p.getLongValue();
+			case VALUE_NULL -> null;
+			default -> ctxt.readValue( p, Long.class );
+		};
+	}
+
+	static Integer readInteger(JsonParser p, DeserializationContext ctxt) throws IOException {
+		return switch ( p.currentToken() ) {
+			case VALUE_NUMBER_INT -> p.getIntValue();
+			case VALUE_NULL -> null;
+			default -> ctxt.readValue( p, Integer.class );
+		};
+	}
+
+	static Double readDouble(JsonParser p, DeserializationContext ctxt) throws IOException {
+		return switch ( p.currentToken() ) {
+			case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> p.getDoubleValue();
+			case VALUE_NULL -> null;
+			default -> ctxt.readValue( p, Double.class );
+		};
+	}
+
+	static void writeNumber(JsonGenerator gen, Long value) throws IOException {
+		if ( value == null ) {
+			gen.writeNull();
+		} else {
+			gen.writeNumber( value );
+		}
+	}
+
+	static void writeNumber(JsonGenerator gen, Integer value) throws IOException {
+		if ( value == null ) {
+			gen.writeNull();
+		} else {
+			gen.writeNumber( value );
+		}
+	}
+
+	static void writeNumber(JsonGenerator gen, Double value) throws IOException {
+		if ( value == null ) {
+			gen.writeNull();
+		} else {
+			gen.writeNumber( value );
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package br.com.foods.teal.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Classe responsável pelos formatos binários das respostas ({@code application/cbor}
+ * e {@code application/x-jackson-smile}), escolhidos pelo cabeçalho
+ * {@code Accept}. Os conversores usam o mesmo construtor do ObjectMapper da
+ * aplicação, então os DTOs são codificados com as mesmas regras do JSON.
+ *
+ * @author Caio Pereira Leal
+ */
+@Configuration
+public class BinaryFormatsConfig {
+
+	/**
+	 * Conversor CBOR
+	 *
+	 * @param builder
+	 * 			{@link Jackson2ObjectMapperBuilder builder} configurado pela aplicação
+	 *
+	 * @return conversor
+	 */
+	@Bean
+	public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+		return new MappingJackson2CborHttpMessageConverter( builder.factory( new CBORFactory() ).build() );
+	}
+
+	/**
+	 * Conversor Smile
+	 *
+	 * @param builder
+	 * 			{@link Jackson2ObjectMapperBuilder builder} configurado pela aplicação
+	 *
+	 * @return conversor
+	 */
+	@Bean
+	public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+		return new MappingJackson2SmileHttpMessageConverter( builder.factory( new SmileFactory() ).build() );
+	}
+}
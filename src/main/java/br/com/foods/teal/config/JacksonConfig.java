@@ -0,0 +1,27 @@
+package br.com.foods.teal.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import br.com.foods.teal.codec.DtoCodecModule;
+
+/**
+ * Classe responsável pelos módulos do Jackson da aplicação. Os módulos
+ * registrados como bean são aplicados pelo Spring Boot a todos os
+ * mapeadores criados a partir do {@code Jackson2ObjectMapperBuilder}.
+ *
+ * @author Caio Pereira Leal
+ */
+@Configuration
+public class JacksonConfig {
+
+	/**
+	 * Serialização escrita à mão dos DTOs de produto e usuário
+	 *
+	 * @return módulo
+	 */
+	@Bean
+	public DtoCodecModule dtoCodecModule() {
+		return new DtoCodecModule();
+	}
+}
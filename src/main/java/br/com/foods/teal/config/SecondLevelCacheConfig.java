@@ -0,0 +1,69 @@
+package br.com.foods.teal.config;
+
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+
+/**
+ * Classe responsável por criar o cache em memória (Caffeine via JCache) usado
+ * como cache de segundo nível do Hibernate, com tamanho e expiração por região
+ * 
+ * @author Caio Pereira Leal
+ */
+@Configuration
+@EnableConfigurationProperties(SecondLevelCacheProperties.class)
+public class SecondLevelCacheConfig {
+
+	/**
+	 * Cria o gerenciador de cache com as regiões configuradas. Regiões não
+	 * configuradas são criadas pelo Hibernate sem limite. A URI é única por
+	 * contexto para que contextos diferentes na mesma JVM (ex.: testes) não
+	 * compartilhem as regiões.
+	 * 
+	 * @param properties
+	 * 			{@link SecondLevelCacheProperties properties}
+	 * 
+	 * @return gerenciador de cache
+	 */
+	@Bean(destroyMethod = "close")
+	public CacheManager hibernateCacheManager(SecondLevelCacheProperties properties) {
+		CacheManager cacheManager = Caching.getCachingProvider( CaffeineCachingProvider.class.getName() )
+				.getCacheManager( URI.create( "teal-hibernate-" + UUID.randomUUID() ), getClass().getClassLoader() );
+
+		properties.regions().forEach( (name, region) -> {
+			CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+			configuration.setMaximumSize( OptionalLong.of( region.maxSize() ) );
+			if ( region.ttl() != null ) {
+				configuration.setExpireAfterWrite( OptionalLong.of( region.ttl().toNanos() ) );
+			}
+			configuration.setStatisticsEnabled( true );
+			cacheManager.createCache( name, configuration );
+		} );
+		return cacheManager;
+	}
+
+	/**
+	 * Entrega ao Hibernate o gerenciador de cache criado pela aplicação
+	 * 
+	 * @param hibernateCacheManager
+	 * 			gerenciador de cache
+	 * 
+	 * @return customizador das propriedades do Hibernate
+	 */
+	@Bean
+	public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager) {
+		return properties -> properties.put( ConfigSettings.CACHE_MANAGER, hibernateCacheManager );
+	}
+}
@@ -0,0 +1,34 @@
+package br.com.foods.teal.config;
+
+import java.time.Duration;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuração das regiões do cache de segundo nível do Hibernate, lida de
+ * {@code app.cache.regions.<região>.*}
+ * 
+ * @param regions
+ * 			configuração de cada região pelo nome
+ * 
+ * @author Caio Pereira Leal
+ */
+@ConfigurationProperties(prefix = "app.cache")
+public record SecondLevelCacheProperties(Map<String, Region> regions) {
+
+	public SecondLevelCacheProperties {
+		regions = regions == null ? Map.of() : regions;
+	}
+
+	/**
+	 * Limites de uma região do cache
+	 * 
+	 * @param maxSize
+	 * 			quantidade máxima de entradas
+	 * @param ttl
+	 * 			tempo de vida de cada entrada após a escrita, ou null para não expirar
+	 */
+	public record Region(long maxSize, Duration ttl) {
+	}
+}
@@ -2,8 +2,11 @@ package br.com.foods.teal.config;
 
 import java.util.Arrays;
 
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.metrics.MetricsEndpoint;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.web.SecurityFilterChain;
@@ -20,6 +23,14 @@ import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 @EnableWebSecurity
 public class SecurityConfig {
 
+	/**
+	 * As métricas expõem nomes de rotas, volume de tráfego e uso do pool de
+	 * conexões, então exigem um usuário com este papel. O endereço de origem
+	 * não serve: atrás de um proxy na mesma máquina toda requisição vem de
+	 * 127.0.0.1.
+	 */
+	private static final String METRICS_ROLE = "METRICS";
+
 	/**
 	 * Classe responsábel por configurar os cors
 	 * 
@@ -46,7 +57,9 @@ public class SecurityConfig {
                         "/v3/api-docs",
                         "/v3/api-docs/**"
                 		).permitAll() 
+                .requestMatchers(EndpointRequest.to(MetricsEndpoint.class)).hasRole(METRICS_ROLE)
                 .anyRequest().permitAll())  
+            .httpBasic(Customizer.withDefaults())
             .headers(headers -> 
                 headers
                     .frameOptions().sameOrigin()  
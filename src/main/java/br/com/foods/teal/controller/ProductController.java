@@ -2,12 +2,16 @@ package br.com.foods.teal.controller;
 
 import java.io.IOException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
-import java.util.Collections;
 import java.util.List;
+import java.util.function.Function;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -15,23 +19,36 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.util.UriComponentsBuilder;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import br.com.foods.teal.dto.ProductBatchDTO;
 import br.com.foods.teal.dto.ProductDTO;
+import br.com.foods.teal.dto.ProductFields;
+import br.com.foods.teal.dto.ProductFilter;
+import br.com.foods.teal.dto.ProductFilterDTO;
+import br.com.foods.teal.model.Category;
 import br.com.foods.teal.model.Product;
+import br.com.foods.teal.services.CatalogCacheService;
+import br.com.foods.teal.services.ImageServingService;
 import br.com.foods.teal.services.ImageStorageService;
+import br.com.foods.teal.services.ImageStorageService.StoredImages;
 import br.com.foods.teal.services.ProductService;
+import br.com.foods.teal.services.ResponseFormats;
+import br.com.foods.teal.services.ResponseFormats.ResponseFormat;
 import io.swagger.v3.oas.annotations.Operation;
 import jakarta.servlet.http.HttpServletRequest;
-import jakarta.transaction.Transactional;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.Part;
 import jakarta.validation.Valid;
 
 /**
@@ -49,17 +66,232 @@ public class ProductController {
 	@Autowired
 	private ImageStorageService imageStorageService;
 	
-	private ObjectMapper mapper = new ObjectMapper();
+	@Autowired
+	private ImageServingService imageServingService;
+	
+	@Autowired
+	private CatalogCacheService catalogCache;
+	
+	@Autowired
+	private ResponseFormats responseFormats;
+	
+	@Autowired
+	private ObjectMapper objectMapper;
 	
 	/**
-	 * Lista todos os produtos salvos
+	 * Lista os produtos salvos paginados por cursor. As páginas saem do cache
+	 * já serializadas e a versão do catálogo é enviada como ETag, respondendo
+	 * 304 quando o cliente já tem a versão atual. Com {@code fields} apenas as
+	 * colunas pedidas são consultadas e enviadas. O corpo é JSON, CBOR ou
+	 * Smile conforme o cabeçalho {@code Accept}.
+	 * 
+	 * @param cursor
+	 * 			cursor retornado no cabeçalho {@code X-Next-Cursor} da página anterior
+	 * @param size
+	 * 			tamanho da página
+	 * @param sort
+	 * 			ordenação ({@code id}, {@code createDate} ou {@code price}, opcionalmente {@code ,desc})
+	 * @param fields
+	 * 			campos de cada produto, como {@code id,name,price,images}; sem o
+	 * 			parâmetro os produtos vêm completos
+	 * @param accept
+	 * 			formatos aceitos pelo cliente
+	 * @param ifNoneMatch
+	 * 			ETag já recebida pelo cliente
+	 * @param acceptEncoding
+	 * 			codificações aceitas pelo cliente
 	 * 
-	 * @return todos produtos
+	 * @return página de produtos
 	 */
 	@GetMapping
 	@Operation(summary = "Rota busca todos os produtos")
-	public ResponseEntity<List<ProductDTO>> getAllProducts() {
-		return ResponseEntity.ok( service.findAllProducts() );
+	public ResponseEntity<byte[]> getAllProducts(@RequestParam(required = false) String cursor,
+			@RequestParam(required = false) Integer size,
+			@RequestParam(required = false) String sort,
+			@RequestParam(required = false) String fields,
+			@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+			@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+		ProductFields selected = service.parseFields( fields );
+		ResponseFormat format = responseFormats.negotiate( accept );
+		return catalogCache.getPage( cursor, size, sort, selected, format, () -> selected == null
+				? service.findAllProducts( cursor, size, sort )
+				: service.queryProductFields( null, selected, cursor, size, sort ) )
+				.toResponse( ifNoneMatch, acceptEncoding );
+	}
+	
+	/**
+	 * Exporta todo o catálogo em JSON delimitado por linha (NDJSON), um
+	 * produto por linha, sem materializar a lista em memória
+	 * 
+	 * @param response
+	 * 			resposta HTTP onde os produtos são escritos
+	 * 
+	 * @throws IOException
+	 * 				Exceção caso ocorra erro na escrita
+	 */
+	@GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	@Operation(summary = "Rota exporta todo o catálogo em NDJSON")
+	public void exportProducts(HttpServletResponse response) throws IOException {
+		response.setContentType( MediaType.APPLICATION_NDJSON_VALUE );
+		response.setCharacterEncoding( StandardCharsets.UTF_8.name() );
+		service.exportProducts( response.getOutputStream() );
+	}
+	
+	/**
+	 * Busca textual nos nomes e descrições dos produtos, ignorando acentos e
+	 * variações como plural, ordenada por relevância. Com {@code fuzzy=true}
+	 * busca nos nomes tolerando erros de digitação. A busca corrigida ("você
+	 * quis dizer") vai no cabeçalho {@code X-Did-You-Mean}.
+	 * 
+	 * @param q
+	 * 			texto buscado
+	 * @param size
+	 * 			quantidade máxima de resultados
+	 * @param fuzzy
+	 * 			true para tolerar erros de digitação
+	 * 
+	 * @return produtos encontrados
+	 */
+	@GetMapping("/search")
+	@Operation(summary = "Rota busca produtos pelo nome e descrição")
+	public ResponseEntity<List<ProductDTO>> searchProducts(@RequestParam String q,
+			@RequestParam(required = false) Integer size,
+			@RequestParam(defaultValue = "false") boolean fuzzy) {
+		return service.searchProducts( q, size, fuzzy ).toResponse();
+	}
+	
+	/**
+	 * Sugere nomes de produto que começam com o texto digitado, para o
+	 * autocompletar da busca
+	 * 
+	 * @param prefix
+	 * 			texto digitado
+	 * @param size
+	 * 			quantidade máxima de sugestões
+	 * 
+	 * @return nomes de produto
+	 */
+	@GetMapping("/suggest")
+	@Operation(summary = "Rota sugere nomes de produto para o autocompletar")
+	public ResponseEntity<List<String>> suggestProducts(@RequestParam String prefix,
+			@RequestParam(required = false) Integer size) {
+		return ResponseEntity.ok( service.suggestProducts( prefix, size ) );
+	}
+	
+	/**
+	 * Filtra os produtos combinando categoria, faixa de preço e vendedor.
+	 * Valores repetidos da mesma faceta se somam; facetas diferentes se
+	 * restringem. A resposta traz os identificadores e a contagem de cada
+	 * faceta.
+	 * 
+	 * @param category
+	 * 			categorias aceitas
+	 * @param priceBand
+	 * 			faixas de preço aceitas ({@code 0-5}, {@code 5-10}, {@code 10-20},
+	 * 			{@code 20-50}, {@code 50-100} ou {@code 100+})
+	 * @param userId
+	 * 			vendedores aceitos
+	 * @param after
+	 * 			último identificador recebido, para continuar a lista
+	 * @param size
+	 * 			quantidade máxima de identificadores
+	 * 
+	 * @return identificadores encontrados e contagem das facetas
+	 */
+	@GetMapping("/filter")
+	@Operation(summary = "Rota filtra produtos por categoria, faixa de preço e vendedor")
+	public ResponseEntity<ProductFilterDTO> filterProducts(@RequestParam(required = false) List<String> category,
+			@RequestParam(required = false) List<String> priceBand,
+			@RequestParam(required = false) List<String> userId,
+			@RequestParam(required = false) Long after,
+			@RequestParam(required = false) Integer size) {
+		return ResponseEntity.ok( service.filterProducts( category, priceBand, userId, after, size ) );
+	}
+	
+	/**
+	 * Consulta paginada por cursor combinando filtros opcionais sobre as
+	 * colunas do produto
+	 * 
+	 * @param category
+	 * 			categoria do produto
+	 * @param minPrice
+	 * 			preço mínimo
+	 * @param maxPrice
+	 * 			preço máximo
+	 * @param inStock
+	 * 			true para apenas produtos com estoque
+	 * @param userId
+	 * 			identificador do vendedor
+	 * @param createdFrom
+	 * 			data de criação inicial (ISO-8601)
+	 * @param createdTo
+	 * 			data de criação final (ISO-8601)
+	 * @param cursor
+	 * 			cursor retornado no cabeçalho {@code X-Next-Cursor} da página anterior
+	 * @param size
+	 * 			tamanho da página
+	 * @param sort
+	 * 			ordenação ({@code id}, {@code createDate} ou {@code price}, opcionalmente {@code ,desc})
+	 * 
+	 * @return página de produtos
+	 */
+	@GetMapping("/query")
+	@Operation(summary = "Rota consulta produtos por categoria, preço, estoque, vendedor e data de criação")
+	public ResponseEntity<List<ProductDTO>> queryProducts(@RequestParam(required = false) Category category,
+			@RequestParam(required = false) Double minPrice,
+			@RequestParam(required = false) Double maxPrice,
+			@RequestParam(required = false) Boolean inStock,
+			@RequestParam(required = false) String userId,
+			@RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime createdFrom,
+			@RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime createdTo,
+			@RequestParam(required = false) String cursor,
+			@RequestParam(required = false) Integer size,
+			@RequestParam(required = false) String sort) {
+		ProductFilter filter = new ProductFilter( category, minPrice, maxPrice, inStock, userId, createdFrom, createdTo );
+		return service.queryProducts( filter, cursor, size, sort ).toResponse();
+	}
+	
+	/**
+	 * Busca vários produtos pelos identificadores em uma chamada
+	 * 
+	 * @param ids
+	 * 			identificadores dos produtos
+	 * @param fields
+	 * 			campos de cada produto, como {@code id,name,price,images}; sem o
+	 * 			parâmetro os produtos vêm completos
+	 * 
+	 * @return produtos na ordem pedida e identificadores não encontrados
+	 */
+	@GetMapping("/batch")
+	@Operation(summary = "Rota busca vários produtos pelos identificadores")
+	public ResponseEntity<ProductBatchDTO<?>> getProductsByIds(@RequestParam List<Long> ids,
+			@RequestParam(required = false) String fields) {
+		return ResponseEntity.ok( findProductsByIds( ids, fields ) );
+	}
+	
+	/**
+	 * Busca vários produtos pelos identificadores enviados no corpo, para
+	 * listas longas demais para a URL
+	 * 
+	 * @param ids
+	 * 			identificadores dos produtos
+	 * @param fields
+	 * 			campos de cada produto, como {@code id,name,price,images}; sem o
+	 * 			parâmetro os produtos vêm completos
+	 * 
+	 * @return produtos na ordem pedida e identificadores não encontrados
+	 */
+	@PostMapping(path = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+	@Operation(summary = "Rota busca vários produtos pelos identificadores enviados no corpo")
+	public ResponseEntity<ProductBatchDTO<?>> postProductsByIds(@RequestBody List<Long> ids,
+			@RequestParam(required = false) String fields) {
+		return ResponseEntity.ok( findProductsByIds( ids, fields ) );
+	}
+	
+	private ProductBatchDTO<?> findProductsByIds(List<Long> ids, String fields) {
+		ProductFields selected = service.parseFields( fields );
+		return selected == null ? service.findProductsByIds( ids ) : service.findProductFieldsByIds( ids, selected );
 	}
 	
 	/**
@@ -77,28 +309,35 @@ public class ProductController {
     }
 	
 	/**
-     * Busca uma imagem do produto
+     * Busca uma imagem do produto, com ETag, Last-Modified e suporte a Range
      * @param filename Nome do arquivo da imagem
-     * @return Imagem como Resource
+     * @param size versão reduzida ({@code thumb} ou {@code medium}); a original é enviada enquanto ela não estiver pronta
+     * @param request requisição
+     * @param response resposta
+     * @throws IOException Exceção ao enviar a imagem
      */
 	@GetMapping("/images/{filename:.+}")
 	@Operation(summary = "Rota vê a imagem")
-	public ResponseEntity<Resource> getImage(@PathVariable String filename) {
-	    return service.getImage( filename );
+	public void getImage(@PathVariable String filename, @RequestParam(required = false) String size,
+			HttpServletRequest request, HttpServletResponse response) throws IOException {
+	    imageServingService.serve( filename, size, request, response );
 	}
 	
 	/**
-	 * Clase para verificar imagens salvas no diretório 
+	 * Clase para verificar imagens salvas no diretório, paginadas por cursor
 	 * 
-	 * @return imagens
+	 * @param cursor
+	 * 			cursor recebido no cabeçalho {@code X-Next-Cursor} da página anterior
+	 * @param size
+	 * 			tamanho da página
 	 * 
-	 * @throws IOException
-	 * 				Exceção para erro
+	 * @return imagens
 	 */
 	@GetMapping("/check-images")
 	@Operation(summary = "Rota checa as imagens")
-	public ResponseEntity<List<String>> listImages() throws IOException {
-	    return ResponseEntity.ok( service.listImages() );
+	public ResponseEntity<List<String>> listImages(@RequestParam(required = false) String cursor,
+			@RequestParam(required = false) Integer size) {
+	    return service.listImages( cursor, size ).toResponse();
 	}
 
     /**
@@ -109,30 +348,47 @@ public class ProductController {
     @GetMapping("/{id}/images")
     @Operation(summary = "Rota buscar imagens do produto")
     public ResponseEntity<List<String>> getProductImages(@PathVariable Long id) {
-        ProductDTO product = service.findProductById(id);
-        
-        return ResponseEntity.ok( product.images() );
+        return ResponseEntity.ok( service.getProductImages( id ) );
     }
     
     /**
-	 * Lista de Produtos por usuário
-	 * 
+	 * Lista de Produtos por usuário paginada por cursor
+	 *
 	 * @param userId
 	 * 			identificador do usuário
-	 * 
-	 * @return user
+	 * @param cursor
+	 * 			cursor retornado no cabeçalho {@code X-Next-Cursor} da página anterior
+	 * @param size
+	 * 			tamanho da página
+	 * @param sort
+	 * 			ordenação ({@code id}, {@code createDate} ou {@code price}, opcionalmente {@code ,desc})
+	 * @param fields
+	 * 			campos de cada produto, como {@code id,name,price,images}; sem o
+	 * 			parâmetro os produtos vêm completos
+	 *
+	 * @return página de produtos do usuário
 	 */
     @GetMapping("/user/{userId}")
     @Operation(summary = "Rota buscar o produto pelo usuário")
-    public ResponseEntity<List<ProductDTO>> getProductsByUser(@PathVariable String userId) {
-    	return ResponseEntity.ok( service.getProductsByUser( userId ) );
+    public ResponseEntity<? extends List<?>> getProductsByUser(@PathVariable String userId,
+    		@RequestParam(required = false) String cursor,
+    		@RequestParam(required = false) Integer size,
+    		@RequestParam(required = false) String sort,
+    		@RequestParam(required = false) String fields) {
+    	ProductFields selected = service.parseFields( fields );
+    	if ( selected != null ) {
+    		return service.queryProductFields( ProductFilter.ofUser( userId ), selected, cursor, size, sort ).toResponse();
+    	}
+    	return service.getProductsByUser( userId, cursor, size, sort ).toResponse();
     }
 
 	/**
 	 * Salvar novo produto
 	 * 
-	 * @param product
-	 *        {@link ProductDTO produto}
+	 * @param productPart
+	 *        {@link ProductDTO produto} em JSON na parte {@code product}, lido
+	 *        direto do fluxo da parte pelo mapeador da aplicação, com ou sem
+	 *        {@code Content-Type}
 	 * @param uriBuilder
 	 *        {@link UriComponentsBuilder}
 	 *
@@ -145,18 +401,15 @@ public class ProductController {
 	 * @return produto persistido
 	 */
 	@PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-	@Transactional
 	@Operation(summary = "Rota responsável por criar um produto")
-	public ResponseEntity<ProductDTO> createProduct(@RequestPart("product") String productJson,
+	public ResponseEntity<ProductDTO> createProduct(@RequestPart("product") Part productPart,
             @RequestPart(value = "images", required = false) List<MultipartFile> images,
             @RequestParam String userId,
             UriComponentsBuilder uriBuilder,
-            HttpServletRequest request) throws JsonProcessingException {
-        
-		ProductDTO productDTO = mapper.readValue( productJson, ProductDTO.class );
-		List<String> imageUrls = processImages( images );
+            HttpServletRequest request) {
         
-        ProductDTO savedProduct = service.save(
+		ProductDTO productDTO = readProduct( productPart );
+		ProductDTO savedProduct = withImages( images, imageUrls -> service.save(
             new ProductDTO(
                 productDTO.id(),
                 productDTO.name(),
@@ -170,17 +423,45 @@ public class ProductController {
                 LocalDateTime.now(),
                 productDTO.updateDate()
             )
-        );
+        ) );
         
         URI uri = uriBuilder.path( "/products/{id}" ).buildAndExpand( savedProduct.id() ).toUri();
         return ResponseEntity.created( uri ).body( savedProduct );
     }
 
-    private List<String> processImages(List<MultipartFile> images) {
-        if ( images == null || images.isEmpty() ) {
-            return Collections.emptyList();
+    /**
+     * Lê o produto da parte sem depender do {@code Content-Type} informado
+     * pelo cliente, que alguns omitem em partes sem nome de arquivo
+     */
+    private ProductDTO readProduct(Part part) {
+        try {
+            return objectMapper.readValue( part.getInputStream(), ProductDTO.class );
+        } catch (IOException e) {
+            throw new ResponseStatusException( HttpStatus.BAD_REQUEST, "Produto inválido", e );
         }
-        return imageStorageService.storeImages( images );
+    }
+
+    /**
+     * Grava as imagens antes de abrir a transação do produto, para que a
+     * conexão com o banco não fique presa durante a escrita em disco, e apaga
+     * as imagens novas se a escrita do produto falhar
+     */
+    private ProductDTO withImages(List<MultipartFile> images, Function<List<String>, ProductDTO> write) {
+        StoredImages stored = images == null || images.isEmpty() ? StoredImages.EMPTY
+                : imageStorageService.storeImages( images );
+        ProductDTO product;
+        try {
+            product = write.apply( stored.urls() );
+        } catch (RuntimeException e) {
+            try {
+                imageStorageService.discard( stored );
+            } catch (RuntimeException cleanup) {
+                e.addSuppressed( cleanup );
+            }
+            throw e;
+        }
+        imageStorageService.confirm( stored );
+        return product;
     }
 	
 	/**
@@ -189,8 +470,9 @@ public class ProductController {
 	 * @param id
 	 *         identificador do produto
 	 *         
-	 * @param productDTO
-	 *           {@link ProductDTO productDTO}
+	 * @param productPart
+	 *           {@link ProductDTO produto} em JSON na parte {@code product},
+	 *           com ou sem {@code Content-Type}
 	 *           
 	 * @param images
 	 * 			imagens do produto
@@ -201,20 +483,16 @@ public class ProductController {
 	 * @return produto atualizado
 	 */
 	@PutMapping(path = "/{id}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-	@Transactional
 	@Operation(summary = "Rota responsável por atualizar o produto com a imagem")
 	public ResponseEntity<ProductDTO> updateProductWithImages(
 	        @PathVariable Long id,
-	        @RequestPart("product") String productJson,
+	        @RequestPart("product") Part productPart,
 	        @RequestPart(value = "images", required = false) List<MultipartFile> images,
 	        @RequestParam String userId,
-	        UriComponentsBuilder uriBuilder) throws JsonProcessingException {
-	    
-	    ProductDTO productDTO = mapper.readValue( productJson, ProductDTO.class );
-	    
-	    List<String> imageUrls = processImages( images );
+	        UriComponentsBuilder uriBuilder) {
 	    
-	    ProductDTO updatedProduct = service.update(
+	    ProductDTO productDTO = readProduct( productPart );
+	    ProductDTO updatedProduct = withImages( images, imageUrls -> service.update(
 	        id,
 	        new ProductDTO(
 	            productDTO.id(),
@@ -229,7 +507,7 @@ public class ProductController {
 	            productDTO.createDate(),
 	            LocalDateTime.now()
 	        )
-	    );
+	    ) );
 	    
 	    return ResponseEntity.ok( updatedProduct );
 	}
@@ -241,7 +519,6 @@ public class ProductController {
 	 *         identificador do produto
 	 */
 	@DeleteMapping("/{id}")
-	@Transactional
 	@Operation(summary = "Rota responsável por deletar o produto")
 	public ResponseEntity<Void> deleteProduct(@Valid @PathVariable Long id) {
 		service.delete( id );
@@ -12,6 +12,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.util.UriComponentsBuilder;
 
@@ -35,14 +36,23 @@ public class UserController {
 	private UserService service;
 	
 	/**
-	 * Lista todos os usuário salvos
+	 * Lista os usuário salvos paginados por cursor
 	 * 
-	 * @return todos usuários
+	 * @param cursor
+	 * 			cursor retornado no cabeçalho {@code X-Next-Cursor} da página anterior
+	 * @param size
+	 * 			tamanho da página
+	 * @param sort
+	 * 			ordenação ({@code id} ou {@code createDate}, opcionalmente {@code ,desc})
+	 * 
+	 * @return página de usuários
 	 */
 	@GetMapping
 	@Operation(summary = "Rota responsável por buscar todos usuário")
-	public ResponseEntity<List<UserDTO>> getAllUsers() {
-		return ResponseEntity.ok( service.findAllUsers() );
+	public ResponseEntity<List<UserDTO>> getAllUsers(@RequestParam(required = false) String cursor,
+			@RequestParam(required = false) Integer size,
+			@RequestParam(required = false) String sort) {
+		return service.findAllUsers( cursor, size, sort ).toResponse();
 	}
 	
 	/**
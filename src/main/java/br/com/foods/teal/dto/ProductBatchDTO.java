@@ -0,0 +1,15 @@
+package br.com.foods.teal.dto;
+
+import java.util.List;
+
+/**
+ * Resultado da busca de vários produtos por identificador
+ *
+ * @param products produtos encontrados, na ordem em que foram pedidos, completos
+ *        ou apenas com os campos pedidos
+ * @param missing identificadores pedidos que não existem
+ *
+ * @author Caio Pereira Leal
+ */
+public record ProductBatchDTO<T>(List<T> products, List<Long> missing) {
+}
@@ -0,0 +1,110 @@
+package br.com.foods.teal.dto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Campos de {@link ProductDTO} pedidos pelo parâmetro {@code fields}, para
+ * que as consultas selecionem apenas as colunas necessárias. As datas não
+ * fazem parte da representação pública e não podem ser pedidas.
+ *
+ * @param names nomes dos campos, na ordem de {@link ProductDTO}
+ *
+ * @author Caio Pereira Leal
+ */
+public record ProductFields(List<String> names) {
+
+	/**
+	 * Campo com as imagens, que vêm de outra tabela
+	 */
+	public static final String IMAGES = "images";
+
+	/**
+	 * Campo de cada coluna de produto e o atributo correspondente da
+	 * entidade, na ordem de {@link ProductDTO}
+	 */
+	private static final Map<String, String> COLUMNS = columns();
+
+	/**
+	 * Lê o parâmetro {@code fields}, como {@code id,name,price,images}
+	 *
+	 * @param fields valor do parâmetro
+	 * @return campos pedidos, ou null quando o parâmetro não for informado
+	 */
+	public static ProductFields parse(String fields) {
+		if ( fields == null || fields.isBlank() ) {
+			return null;
+		}
+		Set<String> requested = new HashSet<>( Arrays.asList( fields.replace( " ", "" ).split( "," ) ) );
+		for ( String name : requested ) {
+			if ( !name.isEmpty() && !name.equals( IMAGES ) && !COLUMNS.containsKey( name ) ) {
+				throw new IllegalArgumentException( "Campo inválido: " + name );
+			}
+		}
+		List<String> names = new ArrayList<>();
+		for ( String name : COLUMNS.keySet() ) {
+			if ( requested.contains( name ) ) {
+				names.add( name );
+			}
+			if ( name.equals( "unit" ) && requested.contains( IMAGES ) ) {
+				names.add( IMAGES );
+			}
+		}
+		return new ProductFields( List.copyOf( names ) );
+	}
+
+	/**
+	 * Informa se as imagens foram pedidas
+	 *
+	 * @return true se as imagens foram pedidas
+	 */
+	public boolean includesImages() {
+		return names.contains( IMAGES );
+	}
+
+	/**
+	 * Colunas a selecionar, por nome do campo e atributo da entidade: o
+	 * identificador e as chaves de ordenação, necessários para a paginação,
+	 * mais as colunas pedidas
+	 *
+	 * @param sortKeys atributos da ordenação em uso
+	 * @return atributo de cada campo selecionado, como {@code userId -> user.id}
+	 */
+	public Map<String, String> selections(Iterable<String> sortKeys) {
+		Map<String, String> selections = new LinkedHashMap<>();
+		selections.put( "id", "id" );
+		sortKeys.forEach( key -> selections.putIfAbsent( key, key ) );
+		for ( String name : names ) {
+			if ( COLUMNS.containsKey( name ) ) {
+				selections.putIfAbsent( name, COLUMNS.get( name ) );
+			}
+		}
+		return selections;
+	}
+
+	/**
+	 * Forma canônica dos campos, usada em chaves de cache
+	 */
+	@Override
+	public String toString() {
+		return String.join( ",", names );
+	}
+
+	private static Map<String, String> columns() {
+		Map<String, String> columns = new LinkedHashMap<>();
+		columns.put( "id", "id" );
+		columns.put( "name", "name" );
+		columns.put( "categories", "category" );
+		columns.put( "description", "description" );
+		columns.put( "unit", "unit" );
+		columns.put( "price", "price" );
+		columns.put( "quantity", "quantity" );
+		columns.put( "userId", "user.id" );
+		return columns;
+	}
+}
@@ -0,0 +1,39 @@
+package br.com.foods.teal.dto;
+
+import java.time.LocalDateTime;
+
+import br.com.foods.teal.model.Category;
+
+/**
+ * Critérios opcionais da consulta dinâmica de produtos. Campos nulos não
+ * filtram.
+ *
+ * @param category categoria do produto
+ * @param minPrice preço mínimo, inclusive
+ * @param maxPrice preço máximo, inclusive
+ * @param inStock true para apenas produtos com quantidade maior que zero
+ * @param userId identificador do vendedor
+ * @param createdFrom data de criação inicial, inclusive
+ * @param createdTo data de criação final, inclusive
+ *
+ * @author Caio Pereira Leal
+ */
+public record ProductFilter(
+		Category category,
+		Double minPrice,
+		Double maxPrice,
+		Boolean inStock,
+		String userId,
+		LocalDateTime createdFrom,
+		LocalDateTime createdTo) {
+
+	/**
+	 * Filtro apenas pelo vendedor
+	 *
+	 * @param userId identificador do vendedor
+	 * @return novo ProductFilter
+	 */
+	public static ProductFilter ofUser(String userId) {
+		return new ProductFilter( null, null, null, null, userId, null, null );
+	}
+}
@@ -0,0 +1,18 @@
+package br.com.foods.teal.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resultado do filtro de produtos por facetas
+ *
+ * @param total quantidade de produtos que atendem ao filtro
+ * @param ids identificadores dos produtos, em ordem crescente, limitados ao tamanho da página
+ * @param facets contagem por valor de cada faceta ({@code category},
+ * 			{@code priceBand} e {@code userId}), considerando os filtros das
+ * 			outras facetas; a de vendedor traz apenas os que têm mais produtos
+ *
+ * @author Caio Pereira Leal
+ */
+public record ProductFilterDTO(long total, List<Long> ids, Map<String, Map<String, Long>> facets) {
+}
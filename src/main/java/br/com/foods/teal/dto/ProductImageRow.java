@@ -0,0 +1,12 @@
+package br.com.foods.teal.dto;
+
+/**
+ * Imagem de um produto lida pelas consultas de projeção
+ *
+ * @param productId identificador do produto
+ * @param imageUrl caminho da imagem
+ *
+ * @author Caio Pereira Leal
+ */
+public record ProductImageRow(Long productId, String imageUrl) {
+}
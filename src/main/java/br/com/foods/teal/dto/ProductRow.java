@@ -0,0 +1,81 @@
+package br.com.foods.teal.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import br.com.foods.teal.model.Category;
+import br.com.foods.teal.model.Product;
+
+/**
+ * Colunas do produto lidas diretamente do banco pelas consultas de projeção,
+ * sem carregar a entidade. As imagens ficam em outra tabela e são buscadas
+ * em lote à parte.
+ *
+ * @param id Identificador do produto
+ * @param name Nome do produto
+ * @param category Categoria do produto
+ * @param description Descrição do produto
+ * @param unit Unidade do produto
+ * @param price preço do produto
+ * @param quantity Quantidade do produto
+ * @param userId identidicador do usuário
+ * @param createDate Data de criação
+ * @param updateDate Data de atualização
+ *
+ * @author Caio Pereira Leal
+ */
+public record ProductRow(
+		Long id,
+		String name,
+		Category category,
+		String description,
+		String unit,
+		Double price,
+		Integer quantity,
+		String userId,
+		LocalDateTime createDate,
+		LocalDateTime updateDate) {
+
+	/**
+	 * Retorna a linha com as colunas de um Product
+	 *
+	 * @param product Entidade Product
+	 * @return novo ProductRow
+	 */
+	public static ProductRow fromModel(Product product) {
+		return new ProductRow(
+				product.getId(),
+				product.getName(),
+				product.getCategory(),
+				product.getDescription(),
+				product.getUnit(),
+				product.getPrice(),
+				product.getQuantity(),
+				product.getUser().getId(),
+				product.getCreateDate(),
+				product.getUpdateDate());
+	}
+
+	/**
+	 * Retorna o ProductDTO desta linha com as imagens informadas
+	 *
+	 * @param images
+	 * 			imagens do produto
+	 *
+	 * @return novo ProductDTO
+	 */
+	public ProductDTO toDTO(List<String> images) {
+		return new ProductDTO(
+				id,
+				name,
+				category.toString(),
+				description,
+				unit,
+				images,
+				price,
+				quantity,
+				userId,
+				createDate,
+				updateDate);
+	}
+}
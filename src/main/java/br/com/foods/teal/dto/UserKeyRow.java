@@ -0,0 +1,14 @@
+package br.com.foods.teal.dto;
+
+/**
+ * Chaves normalizadas de um usuário lidas na validação de unicidade
+ *
+ * @param id identificador do usuário
+ * @param emailKey email normalizado
+ * @param phoneKey telefone normalizado
+ * @param cpfKey cpf normalizado
+ *
+ * @author Caio Pereira Leal
+ */
+public record UserKeyRow(String id, String emailKey, String phoneKey, String cpfKey) {
+}
@@ -5,19 +5,25 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.envers.AuditTable;
 import org.hibernate.envers.Audited;
 
 import br.com.foods.teal.dto.ProductDTO;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CollectionTable;
 import jakarta.persistence.Column;
 import jakarta.persistence.ElementCollection;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
@@ -28,11 +34,23 @@ import jakarta.persistence.Table;
  * @author Caio Pereira Leal
  */
 @Entity
-@Table(name = "tb_product")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "product")
+@Table(name = "tb_product", indexes = {
+		@Index(name = "idx_product_user", columnList = "user_id"),
+		@Index(name = "idx_product_category_price", columnList = "category, price"),
+		@Index(name = "idx_product_update_date", columnList = "update_date")
+})
 @Audited
 @AuditTable(value = "tb_audit_product")
 public class Product implements Serializable {
 	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * Quantidade de coleções de imagens carregadas por consulta quando uma
+	 * lista de produtos é convertida
+	 */
+	public static final int IMAGES_BATCH_SIZE = 100;
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -59,11 +77,13 @@ public class Product implements Serializable {
     private Integer quantity;
     
     @ElementCollection
+    @BatchSize(size = IMAGES_BATCH_SIZE)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "product-images")
     @CollectionTable(name = "product_images", joinColumns = @JoinColumn(name = "product_id"))
     @Column(name = "image_url")
     private List<String> images = new ArrayList<>();
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
@@ -4,18 +4,25 @@ import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.envers.AuditTable;
 import org.hibernate.envers.Audited;
 import org.hibernate.envers.NotAudited;
 
 import br.com.foods.teal.dto.UserDTO;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 
 /**
  * Representa os usuários cadastrados nos sistema
@@ -23,7 +30,13 @@ import jakarta.persistence.Table;
  * @author Caio Pereira Leal
  */
 @Entity
-@Table(name = "tb_user")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user")
+@Table(name = "tb_user", uniqueConstraints = {
+		@UniqueConstraint(name = "uk_user_email_key", columnNames = "email_key"),
+		@UniqueConstraint(name = "uk_user_phone_key", columnNames = "phone_key"),
+		@UniqueConstraint(name = "uk_user_cpf_key", columnNames = "cpf_key")
+})
 @Audited
 @AuditTable(value = "tb_audit_user")
 public class User implements Serializable {
@@ -48,6 +61,18 @@ public class User implements Serializable {
 	@NotAudited
 	private String cpf;
 
+	@Column(name = "email_key")
+	@NotAudited
+	private String emailKey;
+
+	@Column(name = "phone_key")
+	@NotAudited
+	private String phoneKey;
+
+	@Column(name = "cpf_key")
+	@NotAudited
+	private String cpfKey;
+
 	@OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
 	@NotAudited
 	private List<Product> products = new ArrayList<>();
@@ -234,6 +259,76 @@ public class User implements Serializable {
 		this.updateDate = updateDate;
 	}
 
+	/**
+	 * Retorna o email normalizado, usado na verificação de unicidade
+	 * 
+	 * @return emailKey
+	 */
+	public String getEmailKey() {
+		return emailKey;
+	}
+
+	/**
+	 * Retorna o telefone normalizado, usado na verificação de unicidade
+	 * 
+	 * @return phoneKey
+	 */
+	public String getPhoneKey() {
+		return phoneKey;
+	}
+
+	/**
+	 * Retorna o cpf normalizado, usado na verificação de unicidade
+	 * 
+	 * @return cpfKey
+	 */
+	public String getCpfKey() {
+		return cpfKey;
+	}
+
+	/**
+	 * Recalcula as chaves normalizadas de email, telefone e cpf antes de
+	 * cada gravação
+	 */
+	@PrePersist
+	@PreUpdate
+	public void normalizeKeys() {
+		emailKey = normalizeEmail( email );
+		phoneKey = normalizeDigits( phone );
+		cpfKey = normalizeDigits( cpf );
+	}
+
+	/**
+	 * Normaliza o email para comparação: sem espaços nas pontas e em
+	 * minúsculas
+	 * 
+	 * @param email
+	 *            email informado
+	 * 
+	 * @return email normalizado
+	 */
+	public static String normalizeEmail(String email) {
+		return email == null ? null : email.strip().toLowerCase( Locale.ROOT );
+	}
+
+	/**
+	 * Normaliza telefone e cpf para comparação: apenas os dígitos, de modo
+	 * que "123.456.789-00" e "12345678900" sejam iguais. Valores sem dígitos
+	 * são comparados sem espaços nas pontas e em minúsculas.
+	 * 
+	 * @param value
+	 *            telefone ou cpf informado
+	 * 
+	 * @return valor normalizado
+	 */
+	public static String normalizeDigits(String value) {
+		if ( value == null ) {
+			return null;
+		}
+		String digits = value.replaceAll( "\\D", "" );
+		return digits.isEmpty() ? value.strip().toLowerCase( Locale.ROOT ) : digits;
+	}
+
 	public List<Product> getProducts() {
 		return products;
 	}
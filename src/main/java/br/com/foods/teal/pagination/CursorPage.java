@@ -0,0 +1,44 @@
+package br.com.foods.teal.pagination;
+
+import java.util.List;
+
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Página de resultados navegada por cursor
+ *
+ * @param items itens da página
+ * @param nextCursor cursor opaco da próxima página ou null quando não houver mais itens
+ *
+ * @author Caio Pereira Leal
+ */
+public record CursorPage<T>(List<T> items, String nextCursor) {
+
+	/**
+	 * Cabeçalho de resposta que carrega o cursor da próxima página
+	 */
+	public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+	/**
+	 * Informa se existe uma próxima página
+	 *
+	 * @return true se houver próxima página
+	 */
+	public boolean hasNext() {
+		return nextCursor != null;
+	}
+
+	/**
+	 * Monta a resposta com os itens no corpo e o cursor da próxima página no
+	 * cabeçalho {@value #NEXT_CURSOR_HEADER}
+	 *
+	 * @return resposta HTTP
+	 */
+	public ResponseEntity<List<T>> toResponse() {
+		ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+		if ( hasNext() ) {
+			builder.header( NEXT_CURSOR_HEADER, nextCursor );
+		}
+		return builder.body( items );
+	}
+}
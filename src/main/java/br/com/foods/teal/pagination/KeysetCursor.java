@@ -0,0 +1,221 @@
+package br.com.foods.teal.pagination;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Responsável por montar a consulta keyset a partir de um cursor opaco e
+ * gerar o cursor da próxima página.
+ *
+ * O cursor carrega a ordenação e os valores da última linha retornada, então
+ * a página seguinte é buscada com {@code WHERE (chave, id) > (...)} e custa o
+ * mesmo que a primeira, independente da profundidade. Um valor nulo na chave
+ * de ordenação é gravado como a chave sem valor.
+ *
+ * @author Caio Pereira Leal
+ */
+public class KeysetCursor {
+
+	private static final String SEPARATOR = "|";
+
+	private final String idKey;
+
+	private final Sort.Direction direction;
+
+	private final String sortKey;
+
+	private final ScrollPosition position;
+
+	private final Limit limit;
+
+	private KeysetCursor(String idKey, Sort.Direction direction, String sortKey, ScrollPosition position,
+			Limit limit) {
+		this.idKey = idKey;
+		this.direction = direction;
+		this.sortKey = sortKey;
+		this.position = position;
+		this.limit = limit;
+	}
+
+	/**
+	 * Interpreta os parâmetros de paginação recebidos na requisição
+	 *
+	 * @param sortKeys
+	 * 			chaves de ordenação aceitas e o conversor do valor de cada uma
+	 * @param idKey
+	 * 			chave única usada como desempate
+	 * @param cursor
+	 * 			cursor opaco da página anterior ou null para a primeira página
+	 * @param sort
+	 * 			ordenação no formato {@code chave} ou {@code chave,desc}
+	 * @param size
+	 * 			tamanho da página já validado
+	 *
+	 * @return cursor pronto para a consulta
+	 */
+	public static KeysetCursor of(Map<String, Function<String, Object>> sortKeys, String idKey, String cursor,
+			String sort, int size) {
+		if ( cursor != null && !cursor.isBlank() ) {
+			return decode( sortKeys, idKey, cursor, size );
+		}
+
+		String sortKey = idKey;
+		Sort.Direction direction = Sort.Direction.ASC;
+		if ( sort != null && !sort.isBlank() ) {
+			String[] parts = sort.split( "," );
+			sortKey = parts[0].trim();
+			if ( parts.length > 1 ) {
+				direction = Sort.Direction.fromOptionalString( parts[1].trim() )
+						.orElseThrow( () -> invalid( "Direção de ordenação inválida: " + parts[1] ) );
+			}
+		}
+		if ( !sortKeys.containsKey( sortKey ) ) {
+			throw invalid( "Ordenação inválida: " + sortKey );
+		}
+
+		return new KeysetCursor( idKey, direction, sortKey, ScrollPosition.keyset(), Limit.of( size ) );
+	}
+
+	/**
+	 * Resolve o tamanho da página solicitado respeitando o padrão e o máximo
+	 * configurados
+	 *
+	 * @param requested
+	 * 			tamanho solicitado ou null
+	 * @param defaultSize
+	 * 			tamanho padrão
+	 * @param maxSize
+	 * 			tamanho máximo
+	 *
+	 * @return tamanho da página
+	 */
+	public static int pageSize(Integer requested, int defaultSize, int maxSize) {
+		if ( requested == null ) {
+			return defaultSize;
+		}
+		if ( requested < 1 ) {
+			throw invalid( "O tamanho da página deve ser maior que zero" );
+		}
+		return Math.min( requested, maxSize );
+	}
+
+	/**
+	 * Retorna a posição da consulta keyset
+	 *
+	 * @return posição
+	 */
+	public ScrollPosition position() {
+		return position;
+	}
+
+	/**
+	 * Retorna a ordenação estável (chave escolhida + identificador)
+	 *
+	 * @return ordenação
+	 */
+	public Sort sort() {
+		Sort sort = Sort.by( direction, sortKey );
+		return sortKey.equals( idKey ) ? sort : sort.and( Sort.by( direction, idKey ) );
+	}
+
+	/**
+	 * Retorna o tamanho da página
+	 *
+	 * @return limite
+	 */
+	public Limit limit() {
+		return limit;
+	}
+
+	/**
+	 * Converte a janela retornada pelo repositório em uma página com o cursor
+	 * da próxima consulta
+	 *
+	 * @param window
+	 * 			janela retornada pela consulta keyset
+	 * @param mapper
+	 * 			conversão dos itens da janela para DTO, feita de uma vez para
+	 * 			permitir consultas em lote
+	 *
+	 * @return página
+	 */
+	public <T, R> CursorPage<R> toPage(Window<T> window, Function<List<T>, List<R>> mapper) {
+		List<R> items = mapper.apply( window.getContent() );
+		if ( !window.hasNext() || window.isEmpty() ) {
+			return new CursorPage<>( items, null );
+		}
+
+		KeysetScrollPosition last = (KeysetScrollPosition) window.positionAt( window.size() - 1 );
+		return new CursorPage<>( items, encode( last.getKeys() ) );
+	}
+
+	private String encode(Map<String, ?> keys) {
+		StringBuilder raw = new StringBuilder()
+				.append( direction.name() ).append( SEPARATOR )
+				.append( sortKey );
+		for ( String key : sort().stream().map( Sort.Order::getProperty ).toList() ) {
+			Object value = keys.get( key );
+			raw.append( SEPARATOR ).append( key );
+			if ( value != null ) {
+				// chave sem valor representa o nulo
+				raw.append( '=' ).append( URLEncoder.encode( String.valueOf( value ), StandardCharsets.UTF_8 ) );
+			}
+		}
+		return Base64.getUrlEncoder().withoutPadding()
+				.encodeToString( raw.toString().getBytes( StandardCharsets.UTF_8 ) );
+	}
+
+	private static KeysetCursor decode(Map<String, Function<String, Object>> sortKeys, String idKey, String cursor,
+			int size) {
+		try {
+			String raw = new String( Base64.getUrlDecoder().decode( cursor ), StandardCharsets.UTF_8 );
+			String[] parts = raw.split( "\\" + SEPARATOR );
+			Sort.Direction direction = Sort.Direction.fromString( parts[0] );
+			String sortKey = parts[1];
+			if ( !sortKeys.containsKey( sortKey ) ) {
+				throw invalid( "Cursor inválido" );
+			}
+
+			Map<String, Object> keys = new LinkedHashMap<>();
+			for ( int i = 2; i < parts.length; i++ ) {
+				int eq = parts[i].indexOf( '=' );
+				String key = eq < 0 ? parts[i] : parts[i].substring( 0, eq );
+				Function<String, Object> parser = sortKeys.get( key );
+				if ( parser == null ) {
+					throw invalid( "Cursor inválido" );
+				}
+				keys.put( key, eq < 0 ? null
+						: parser.apply( URLDecoder.decode( parts[i].substring( eq + 1 ), StandardCharsets.UTF_8 ) ) );
+			}
+			if ( !keys.containsKey( sortKey ) || keys.get( idKey ) == null ) {
+				throw invalid( "Cursor inválido" );
+			}
+
+			return new KeysetCursor( idKey, direction, sortKey, ScrollPosition.forward( keys ),
+					Limit.of( size ) );
+		} catch (RuntimeException e) {
+			if ( e instanceof ResponseStatusException ) {
+				throw e;
+			}
+			throw invalid( "Cursor inválido" );
+		}
+	}
+
+	private static ResponseStatusException invalid(String message) {
+		return new ResponseStatusException( HttpStatus.BAD_REQUEST, message );
+	}
+}
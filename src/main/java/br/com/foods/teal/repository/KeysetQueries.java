@@ -0,0 +1,128 @@
+package br.com.foods.teal.repository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+/**
+ * Execução das consultas keyset sobre a Criteria API.
+ *
+ * Chaves de ordenação podem ser nulas (como {@code createDate} de registros
+ * antigos): o nulo é tratado como maior que qualquer valor, ficando no fim da
+ * ordem crescente e no início da decrescente, e a condição da próxima página
+ * compara com {@code is null} em vez de {@code > null}, que nunca é
+ * verdadeiro.
+ *
+ * @author Caio Pereira Leal
+ */
+final class KeysetQueries {
+
+	private KeysetQueries() {
+	}
+
+	/**
+	 * Executa a consulta a partir da posição informada, buscando uma linha a
+	 * mais para saber se existe próxima página
+	 *
+	 * @param entityManager
+	 * 			gerenciador de entidades
+	 * @param query
+	 * 			consulta já com a seleção
+	 * @param root
+	 * 			entidade consultada
+	 * @param filter
+	 * 			critério da consulta ou null
+	 * @param position
+	 * 			posição keyset da última linha lida
+	 * @param sort
+	 * 			ordenação estável, terminando em uma chave única e não nula
+	 * @param limit
+	 * 			tamanho da página
+	 * @param key
+	 * 			valor de uma chave da ordenação em uma linha
+	 *
+	 * @return janela com a posição de cada linha
+	 */
+	static <R> Window<R> scroll(EntityManager entityManager, CriteriaQuery<R> query, Root<?> root, Predicate filter,
+			ScrollPosition position, Sort sort, Limit limit, BiFunction<R, String, Object> key) {
+		HibernateCriteriaBuilder cb = (HibernateCriteriaBuilder) entityManager.getCriteriaBuilder();
+		List<Predicate> where = new ArrayList<>();
+		if ( filter != null ) {
+			where.add( filter );
+		}
+		if ( position instanceof KeysetScrollPosition keyset && !keyset.isInitial() ) {
+			where.add( after( cb, root, sort, keyset.getKeys() ) );
+		}
+		query.where( where.toArray( Predicate[]::new ) );
+
+		List<Order> orders = new ArrayList<>();
+		for ( Sort.Order order : sort ) {
+			Expression<?> path = root.get( order.getProperty() );
+			orders.add( order.isAscending() ? cb.asc( path, false ) : cb.desc( path, true ) );
+		}
+		query.orderBy( orders );
+
+		List<R> rows = entityManager.createQuery( query )
+				.setMaxResults( limit.max() + 1 )
+				.getResultList();
+		boolean hasNext = rows.size() > limit.max();
+		List<R> content = hasNext ? rows.subList( 0, limit.max() ) : rows;
+
+		return Window.from( content, index -> ScrollPosition.forward( keysOf( content.get( index ), sort, key ) ),
+				hasNext );
+	}
+
+	/**
+	 * Monta {@code (k1 > v1) or (k1 = v1 and k2 > v2) ...} respeitando a direção
+	 * de cada chave da ordenação e a posição dos nulos
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Predicate after(HibernateCriteriaBuilder cb, Root<?> root, Sort sort, Map<String, ?> keys) {
+		List<Predicate> alternatives = new ArrayList<>();
+		List<Predicate> equals = new ArrayList<>();
+		for ( Sort.Order order : sort ) {
+			Expression path = root.get( order.getProperty() );
+			Comparable value = (Comparable) keys.get( order.getProperty() );
+
+			Predicate beyond;
+			if ( value == null ) {
+				// na ordem crescente nada vem depois dos nulos além do desempate
+				beyond = order.isAscending() ? null : cb.isNotNull( path );
+			} else {
+				beyond = order.isAscending() ? cb.or( cb.greaterThan( path, value ), cb.isNull( path ) )
+						: cb.lessThan( path, value );
+			}
+			if ( beyond != null ) {
+				List<Predicate> alternative = new ArrayList<>( equals );
+				alternative.add( beyond );
+				alternatives.add( cb.and( alternative.toArray( Predicate[]::new ) ) );
+			}
+			equals.add( value == null ? cb.isNull( path ) : cb.equal( path, value ) );
+		}
+		return cb.or( alternatives.toArray( Predicate[]::new ) );
+	}
+
+	private static <R> Map<String, Object> keysOf(R row, Sort sort, BiFunction<R, String, Object> key) {
+		Map<String, Object> keys = new LinkedHashMap<>();
+		for ( Sort.Order order : sort ) {
+			keys.put( order.getProperty(), key.apply( row, order.getProperty() ) );
+		}
+		return keys;
+	}
+}
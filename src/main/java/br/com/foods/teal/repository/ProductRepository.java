@@ -1,18 +1,53 @@
 package br.com.foods.teal.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import br.com.foods.teal.dto.ProductImageRow;
+import br.com.foods.teal.dto.ProductRow;
 import br.com.foods.teal.model.Product;
+import jakarta.persistence.QueryHint;
 
 /**
  * Repositório da classe produto
  * 
  * @author Caio Pereira Leal
  */
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRowRepository {
+
+	/**
+	 * Quantidade de linhas buscadas por ida ao banco na exportação
+	 */
+	String EXPORT_FETCH_SIZE = "500";
+
+	/**
+	 * Região do cache de consultas usada pelas buscas de detalhe do produto
+	 */
+	String QUERY_CACHE_REGION = "product-queries";
+
+	/**
+	 * Colunas selecionadas pelas consultas de projeção de {@link ProductRow}
+	 */
+	String PRODUCT_ROW = "select new br.com.foods.teal.dto.ProductRow(p.id, p.name, p.category, p.description, "
+			+ "p.unit, p.price, p.quantity, p.user.id, p.createDate, p.updateDate) from Product p ";
+
+	/**
+	 * Busca o produto já com as imagens, em uma única consulta
+	 *
+	 * @param id
+	 * 			identificador do produto
+	 */
+	@Override
+	@EntityGraph(attributePaths = "images")
+	Optional<Product> findById(Long id);
 
 	/**
 	 * Encontra produtos com o nome passado via parametro
@@ -37,4 +72,72 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
 	 * 			identificador do usuário
 	 */
 	 List<Product> findByUserId(String userId);
+
+	/**
+	 * Busca as colunas do produto sem carregar a entidade
+	 *
+	 * @param id
+	 * 			identificador do produto
+	 */
+	@Query(PRODUCT_ROW + "where p.id = :id")
+	@QueryHints({
+		@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+		@QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = QUERY_CACHE_REGION)
+	})
+	Optional<ProductRow> findRowById(Long id);
+
+	/**
+	 * Busca as imagens de um produto
+	 *
+	 * @param id
+	 * 			identificador do produto
+	 */
+	@Query("select i from Product p join p.images i where p.id = :id")
+	@QueryHints({
+		@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+		@QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = QUERY_CACHE_REGION)
+	})
+	List<String> findImagesByProductId(Long id);
+
+	/**
+	 * Busca as colunas de vários produtos sem carregar as entidades
+	 *
+	 * @param ids
+	 * 			identificadores dos produtos
+	 */
+	@Query(PRODUCT_ROW + "where p.id in :ids")
+	List<ProductRow> findRowsByIds(Collection<Long> ids);
+
+	/**
+	 * Busca as imagens de vários produtos em uma única consulta
+	 *
+	 * @param productIds
+	 * 			identificadores dos produtos
+	 */
+	@Query("select new br.com.foods.teal.dto.ProductImageRow(p.id, i) from Product p join p.images i "
+			+ "where p.id in :productIds")
+	List<ProductImageRow> findImagesByProductIds(Collection<Long> productIds);
+
+	/**
+	 * Informa se algum produto gravado usa a imagem
+	 *
+	 * @param url
+	 * 			URL da imagem, como {@code /product-images/<nome>}
+	 */
+	@Query("select count(i) > 0 from Product p join p.images i where i = :url")
+	boolean existsImage(String url);
+
+	/**
+	 * Percorre as colunas de todo o catálogo sem carregá-lo em memória, usado
+	 * na exportação.
+	 * Deve ser consumido dentro de uma transação somente leitura e fechado ao
+	 * final.
+	 */
+	@Query(PRODUCT_ROW + "order by p.id")
+	@QueryHints({
+		@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+		@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+		@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+	})
+	Stream<ProductRow> streamCatalog();
 }
@@ -0,0 +1,78 @@
+package br.com.foods.teal.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+
+import br.com.foods.teal.dto.ProductRow;
+import br.com.foods.teal.model.Product;
+
+/**
+ * Consultas keyset de produto que retornam {@link ProductRow} direto do banco,
+ * sem carregar entidades
+ * 
+ * @author Caio Pereira Leal
+ */
+public interface ProductRowRepository {
+
+	/**
+	 * Página de produtos por keyset a partir da posição informada
+	 *
+	 * @param position
+	 * 			posição keyset da última linha lida
+	 * @param sort
+	 * 			ordenação estável
+	 * @param limit
+	 * 			tamanho da página
+	 */
+	Window<ProductRow> scrollRows(ScrollPosition position, Sort sort, Limit limit);
+
+	/**
+	 * Página de produtos que atendem ao critério, por keyset a partir da
+	 * posição informada
+	 *
+	 * @param filter
+	 * 			critério da consulta, ou null para todos os produtos
+	 * @param position
+	 * 			posição keyset da última linha lida
+	 * @param sort
+	 * 			ordenação estável
+	 * @param limit
+	 * 			tamanho da página
+	 */
+	Window<ProductRow> scrollRows(Specification<Product> filter, ScrollPosition position, Sort sort, Limit limit);
+
+	/**
+	 * Página apenas com as colunas informadas, por keyset a partir da posição
+	 * informada. As colunas da ordenação precisam estar entre as selecionadas.
+	 *
+	 * @param filter
+	 * 			critério da consulta, ou null para todos os produtos
+	 * @param selections
+	 * 			atributo da entidade de cada campo selecionado, como {@code userId -> user.id}
+	 * @param position
+	 * 			posição keyset da última linha lida
+	 * @param sort
+	 * 			ordenação estável
+	 * @param limit
+	 * 			tamanho da página
+	 */
+	Window<Map<String, Object>> scrollFields(Specification<Product> filter, Map<String, String> selections,
+			ScrollPosition position, Sort sort, Limit limit);
+
+	/**
+	 * Busca apenas as colunas informadas de vários produtos
+	 *
+	 * @param ids
+	 * 			identificadores dos produtos
+	 * @param selections
+	 * 			atributo da entidade de cada campo selecionado, como {@code userId -> user.id}
+	 */
+	List<Map<String, Object>> findFieldsByIds(Collection<Long> ids, Map<String, String> selections);
+}
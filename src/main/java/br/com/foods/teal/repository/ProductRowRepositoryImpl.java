@@ -0,0 +1,123 @@
+package br.com.foods.teal.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+
+import br.com.foods.teal.dto.ProductRow;
+import br.com.foods.teal.model.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TupleElement;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+
+/**
+ * Implementação das consultas keyset de {@link ProductRow}
+ * 
+ * @author Caio Pereira Leal
+ */
+class ProductRowRepositoryImpl implements ProductRowRepository {
+
+	private static final Map<String, Function<ProductRow, Object>> KEYS = Map.of(
+			"id", ProductRow::id,
+			"createDate", ProductRow::createDate,
+			"price", ProductRow::price );
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	public Window<ProductRow> scrollRows(ScrollPosition position, Sort sort, Limit limit) {
+		return scrollRows( null, position, sort, limit );
+	}
+
+	@Override
+	public Window<ProductRow> scrollRows(Specification<Product> filter, ScrollPosition position, Sort sort,
+			Limit limit) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<ProductRow> query = cb.createQuery( ProductRow.class );
+		Root<Product> product = query.from( Product.class );
+		query.select( cb.construct( ProductRow.class,
+				product.get( "id" ),
+				product.get( "name" ),
+				product.get( "category" ),
+				product.get( "description" ),
+				product.get( "unit" ),
+				product.get( "price" ),
+				product.get( "quantity" ),
+				product.get( "user" ).get( "id" ),
+				product.get( "createDate" ),
+				product.get( "updateDate" ) ) );
+
+		return scroll( query, product, filter, position, sort, limit,
+				(row, property) -> KEYS.get( property ).apply( row ) );
+	}
+
+	@Override
+	public Window<Map<String, Object>> scrollFields(Specification<Product> filter, Map<String, String> selections,
+			ScrollPosition position, Sort sort, Limit limit) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Tuple> query = cb.createTupleQuery();
+		Root<Product> product = query.from( Product.class );
+		query.multiselect( selectionsOf( product, selections ) );
+
+		return scroll( query, product, filter, position, sort, limit, Tuple::get ).map( this::toMap );
+	}
+
+	@Override
+	public List<Map<String, Object>> findFieldsByIds(Collection<Long> ids, Map<String, String> selections) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Tuple> query = cb.createTupleQuery();
+		Root<Product> product = query.from( Product.class );
+		query.multiselect( selectionsOf( product, selections ) ).where( product.get( "id" ).in( ids ) );
+
+		return entityManager.createQuery( query ).getResultList().stream().map( this::toMap ).toList();
+	}
+
+	private <R> Window<R> scroll(CriteriaQuery<R> query, Root<Product> product, Specification<Product> filter,
+			ScrollPosition position, Sort sort, Limit limit, BiFunction<R, String, Object> key) {
+		Predicate predicate = filter == null ? null
+				: filter.toPredicate( product, query, entityManager.getCriteriaBuilder() );
+		return KeysetQueries.scroll( entityManager, query, product, predicate, position, sort, limit, key );
+	}
+
+	/**
+	 * Seleciona cada atributo (como {@code user.id}) com o nome do campo como
+	 * apelido
+	 */
+	private static List<Selection<?>> selectionsOf(Root<Product> product, Map<String, String> selections) {
+		List<Selection<?>> columns = new ArrayList<>();
+		selections.forEach( (alias, attribute) -> {
+			Path<?> path = product;
+			for ( String part : attribute.split( "\\." ) ) {
+				path = path.get( part );
+			}
+			columns.add( path.alias( alias ) );
+		} );
+		return columns;
+	}
+
+	private Map<String, Object> toMap(Tuple tuple) {
+		Map<String, Object> fields = new LinkedHashMap<>();
+		for ( TupleElement<?> element : tuple.getElements() ) {
+			fields.put( element.getAlias(), tuple.get( element ) );
+		}
+		return fields;
+	}
+}
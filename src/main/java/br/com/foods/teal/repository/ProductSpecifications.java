@@ -0,0 +1,120 @@
+package br.com.foods.teal.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import br.com.foods.teal.dto.ProductFilter;
+import br.com.foods.teal.model.Category;
+import br.com.foods.teal.model.Product;
+
+/**
+ * Critérios de consulta de {@link Product} combináveis entre si. Cada
+ * critério com valor nulo devolve null, que não filtra quando combinado.
+ *
+ * Os critérios foram pensados para os índices de {@code tb_product}:
+ * vendedor em {@code (user_id)} e categoria com faixa de preço em
+ * {@code (category, price)}.
+ * 
+ * @author Caio Pereira Leal
+ */
+public final class ProductSpecifications {
+
+	private ProductSpecifications() {
+	}
+
+	/**
+	 * Combina todos os critérios preenchidos do filtro
+	 * 
+	 * @param filter
+	 * 			critérios da consulta
+	 * 
+	 * @return critério combinado
+	 */
+	public static Specification<Product> matching(ProductFilter filter) {
+		return Specification.where( ofUser( filter.userId() ) )
+				.and( inCategory( filter.category() ) )
+				.and( priceBetween( filter.minPrice(), filter.maxPrice() ) )
+				.and( Boolean.TRUE.equals( filter.inStock() ) ? inStock() : null )
+				.and( createdBetween( filter.createdFrom(), filter.createdTo() ) );
+	}
+
+	/**
+	 * Produtos do vendedor
+	 * 
+	 * @param userId
+	 * 			identificador do vendedor
+	 */
+	public static Specification<Product> ofUser(String userId) {
+		if ( userId == null ) {
+			return null;
+		}
+		return (product, query, cb) -> cb.equal( product.get( "user" ).get( "id" ), userId );
+	}
+
+	/**
+	 * Produtos da categoria
+	 * 
+	 * @param category
+	 * 			categoria do produto
+	 */
+	public static Specification<Product> inCategory(Category category) {
+		if ( category == null ) {
+			return null;
+		}
+		return (product, query, cb) -> cb.equal( product.get( "category" ), category );
+	}
+
+	/**
+	 * Produtos com preço na faixa, com limites inclusivos e opcionais
+	 * 
+	 * @param min
+	 * 			preço mínimo
+	 * @param max
+	 * 			preço máximo
+	 */
+	public static Specification<Product> priceBetween(Double min, Double max) {
+		if ( min == null && max == null ) {
+			return null;
+		}
+		return (product, query, cb) -> {
+			if ( min == null ) {
+				return cb.lessThanOrEqualTo( product.get( "price" ), max );
+			}
+			if ( max == null ) {
+				return cb.greaterThanOrEqualTo( product.get( "price" ), min );
+			}
+			return cb.between( product.get( "price" ), min, max );
+		};
+	}
+
+	/**
+	 * Produtos com quantidade em estoque
+	 */
+	public static Specification<Product> inStock() {
+		return (product, query, cb) -> cb.greaterThan( product.get( "quantity" ), 0 );
+	}
+
+	/**
+	 * Produtos criados no período, com limites inclusivos e opcionais
+	 * 
+	 * @param from
+	 * 			data inicial
+	 * @param to
+	 * 			data final
+	 */
+	public static Specification<Product> createdBetween(LocalDateTime from, LocalDateTime to) {
+		if ( from == null && to == null ) {
+			return null;
+		}
+		return (product, query, cb) -> {
+			if ( from == null ) {
+				return cb.lessThanOrEqualTo( product.get( "createDate" ), to );
+			}
+			if ( to == null ) {
+				return cb.greaterThanOrEqualTo( product.get( "createDate" ), from );
+			}
+			return cb.between( product.get( "createDate" ), from, to );
+		};
+	}
+}
@@ -1,39 +1,61 @@
 package br.com.foods.teal.repository;
 
-import java.util.Optional;
+import java.util.List;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import br.com.foods.teal.dto.UserKeyRow;
 import br.com.foods.teal.model.User;
+import jakarta.persistence.QueryHint;
 
 /**
  * Repositório da classe usuário
  * 
  * @author Caio Pereira Leal
  */
-public interface UserRepository extends JpaRepository<User, String> {
+public interface UserRepository extends JpaRepository<User, String>, UserScrollRepository {
 
 	/**
-	 * Encontra usuário com o email passado via parametro
+	 * Busca, em uma única consulta pelas colunas normalizadas e indexadas, os
+	 * usuários que já usam o email, o telefone ou o cpf informados
 	 * 
-	 * @param email
-	 * 			email do usuário
+	 * @param emailKey
+	 * 			email normalizado
+	 * @param phoneKey
+	 * 			telefone normalizado
+	 * @param cpfKey
+	 * 			cpf normalizado
 	 */
-	Optional<User> findByEmailIgnoreCase(String email);
-	
+	@Query("select new br.com.foods.teal.dto.UserKeyRow(u.id, u.emailKey, u.phoneKey, u.cpfKey) from User u "
+			+ "where u.emailKey = :emailKey or u.phoneKey = :phoneKey or u.cpfKey = :cpfKey")
+	List<UserKeyRow> findConflicts(String emailKey, String phoneKey, String cpfKey);
+
 	/**
-	 * Encontra usuário com o telefone passado via parametro
-	 * 
-	 * @param phone
-	 * 			telefone do usuário
+	 * Percorre email, telefone e cpf de todos os usuários, com os valores
+	 * originais (não normalizados), sem carregar as entidades.
+	 * Deve ser consumido dentro de uma transação e fechado ao final.
 	 */
-	Optional<User> findByPhoneIgnoreCase(String phone);
-	
+	@Query("select new br.com.foods.teal.dto.UserKeyRow(u.id, u.email, u.phone, u.cpf) from User u")
+	@QueryHints({
+		@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+		@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+	})
+	Stream<UserKeyRow> streamContacts();
+
 	/**
-	 * Encontra usuário com o cpf passado via parametro
+	 * Lote de usuários gravados antes das colunas normalizadas existirem, em
+	 * ordem de identificador
 	 * 
-	 * @param cpf
-	 * 			cpf do usuário
+	 * @param id
+	 * 			identificador do último usuário do lote anterior
+	 * @param limit
+	 * 			tamanho do lote
 	 */
-	Optional<User> findByCpfIgnoreCase(String phone);
+	List<User> findByEmailKeyIsNullAndIdGreaterThanOrderById(String id, Limit limit);
 }
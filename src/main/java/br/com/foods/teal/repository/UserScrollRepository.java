@@ -0,0 +1,28 @@
+package br.com.foods.teal.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import br.com.foods.teal.model.User;
+
+/**
+ * Consulta keyset de usuários que aceita chaves de ordenação nulas
+ * 
+ * @author Caio Pereira Leal
+ */
+public interface UserScrollRepository {
+
+	/**
+	 * Página de usuários por keyset a partir da posição informada
+	 *
+	 * @param position
+	 * 			posição keyset da última linha lida
+	 * @param sort
+	 * 			ordenação estável
+	 * @param limit
+	 * 			tamanho da página
+	 */
+	Window<User> scrollUsers(ScrollPosition position, Sort sort, Limit limit);
+}
@@ -0,0 +1,40 @@
+package br.com.foods.teal.repository;
+
+import java.util.Map;
+import java.util.function.Function;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import br.com.foods.teal.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+
+/**
+ * Implementação da consulta keyset de usuários
+ * 
+ * @author Caio Pereira Leal
+ */
+class UserScrollRepositoryImpl implements UserScrollRepository {
+
+	private static final Map<String, Function<User, Object>> KEYS = Map.of(
+			"id", User::getId,
+			"createDate", User::getCreateDate );
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	public Window<User> scrollUsers(ScrollPosition position, Sort sort, Limit limit) {
+		CriteriaQuery<User> query = entityManager.getCriteriaBuilder().createQuery( User.class );
+		Root<User> user = query.from( User.class );
+		query.select( user );
+
+		return KeysetQueries.scroll( entityManager, query, user, null, position, sort, limit,
+				(row, property) -> KEYS.get( property ).apply( row ) );
+	}
+}
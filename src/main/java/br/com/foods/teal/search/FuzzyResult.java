@@ -0,0 +1,15 @@
+package br.com.foods.teal.search;
+
+import java.util.List;
+
+/**
+ * Resultado de uma busca aproximada no índice de trigramas
+ * 
+ * @param hits produtos encontrados, do mais parecido para o menos parecido
+ * @param correctedQuery busca com cada palavra trocada pela palavra mais
+ * 			próxima do catálogo, ou null quando não houver correção
+ * 
+ * @author Caio Pereira Leal
+ */
+public record FuzzyResult(List<SearchHit> hits, String correctedQuery) {
+}
@@ -0,0 +1,78 @@
+package br.com.foods.teal.search;
+
+/**
+ * Redutor leve de palavras em português, aplicado sobre palavras já sem
+ * acento. Remove plural, diminutivo, o sufixo de advérbio e a vogal final de
+ * gênero, de forma que "tomates", "tomatinho" e "tomate" tenham o mesmo
+ * radical.
+ * 
+ * @author Caio Pereira Leal
+ */
+public final class PortugueseStemmer {
+
+	private static final int MIN_STEM = 3;
+
+	private PortugueseStemmer() {
+	}
+
+	/**
+	 * Reduz a palavra ao radical
+	 * 
+	 * @param word
+	 * 			palavra em minúsculas e sem acento
+	 * 
+	 * @return radical
+	 */
+	public static String stem(String word) {
+		if ( word.length() <= MIN_STEM || !Character.isLetter( word.charAt( word.length() - 1 ) ) ) {
+			return word;
+		}
+		String stem = plural( word );
+		stem = strip( stem, "mente" );
+		stem = diminutive( stem );
+		return gender( stem );
+	}
+
+	private static String plural(String word) {
+		if ( word.endsWith( "oes" ) || word.endsWith( "aes" ) ) {
+			return word.substring( 0, word.length() - 3 ) + "ao";
+		}
+		if ( word.endsWith( "ais" ) || word.endsWith( "eis" ) || word.endsWith( "ois" ) ) {
+			return word.substring( 0, word.length() - 2 ) + "l";
+		}
+		if ( word.endsWith( "ns" ) ) {
+			return word.substring( 0, word.length() - 2 ) + "m";
+		}
+		if ( word.endsWith( "res" ) || word.endsWith( "zes" ) || word.endsWith( "les" ) || word.endsWith( "ses" ) ) {
+			return word.substring( 0, word.length() - 2 );
+		}
+		if ( word.endsWith( "s" ) && !word.endsWith( "ss" ) && !word.endsWith( "us" ) ) {
+			return word.substring( 0, word.length() - 1 );
+		}
+		return word;
+	}
+
+	private static String diminutive(String word) {
+		for ( String suffix : new String[] { "zinho", "zinha", "inho", "inha" } ) {
+			if ( word.endsWith( suffix ) && word.length() - suffix.length() >= MIN_STEM ) {
+				return word.substring( 0, word.length() - suffix.length() );
+			}
+		}
+		return word;
+	}
+
+	private static String gender(String word) {
+		char last = word.charAt( word.length() - 1 );
+		if ( word.length() > MIN_STEM && ( last == 'a' || last == 'o' || last == 'e' ) ) {
+			return word.substring( 0, word.length() - 1 );
+		}
+		return word;
+	}
+
+	private static String strip(String word, String suffix) {
+		if ( word.endsWith( suffix ) && word.length() - suffix.length() >= MIN_STEM ) {
+			return word.substring( 0, word.length() - suffix.length() );
+		}
+		return word;
+	}
+}
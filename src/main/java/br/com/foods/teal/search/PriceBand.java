@@ -0,0 +1,83 @@
+package br.com.foods.teal.search;
+
+/**
+ * Faixas de preço usadas no filtro por facetas
+ * 
+ * @author Caio Pereira Leal
+ */
+public enum PriceBand {
+	Ate5("0-5", 0, 5),
+	De5a10("5-10", 5, 10),
+	De10a20("10-20", 10, 20),
+	De20a50("20-50", 20, 50),
+	De50a100("50-100", 50, 100),
+	Acima100("100+", 100, Double.POSITIVE_INFINITY);
+
+	private final String label;
+
+	private final double min;
+
+	private final double max;
+
+	/**
+	 * Construtor com o rótulo e os limites da faixa
+	 * 
+	 * @param label
+	 * 			rótulo usado na API
+	 * @param min
+	 * 			preço mínimo, inclusive
+	 * @param max
+	 * 			preço máximo, exclusive
+	 */
+	PriceBand(String label, double min, double max) {
+		this.label = label;
+		this.min = min;
+		this.max = max;
+	}
+
+	/**
+	 * Retorna o rótulo da faixa
+	 * 
+	 * @return label
+	 */
+	public String getLabel() {
+		return label;
+	}
+
+	/**
+	 * Retorna a faixa do preço informado
+	 * 
+	 * @param price
+	 * 			preço do produto
+	 * 
+	 * @return faixa, ou null para preço nulo ou negativo
+	 */
+	public static PriceBand of(Double price) {
+		if ( price == null ) {
+			return null;
+		}
+		for ( PriceBand band : values() ) {
+			if ( price >= band.min && price < band.max ) {
+				return band;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Retorna a faixa pelo rótulo
+	 * 
+	 * @param label
+	 * 			rótulo da faixa, como {@code 5-10}
+	 * 
+	 * @return faixa
+	 */
+	public static PriceBand fromLabel(String label) {
+		for ( PriceBand band : values() ) {
+			if ( band.label.equals( label ) ) {
+				return band;
+			}
+		}
+		throw new IllegalArgumentException( "Faixa de preço inválida: " + label );
+	}
+}
@@ -0,0 +1,273 @@
+package br.com.foods.teal.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+
+import br.com.foods.teal.dto.ProductFilterDTO;
+import br.com.foods.teal.dto.ProductRow;
+import br.com.foods.teal.model.Category;
+
+/**
+ * Índice de bitmaps comprimidos (Roaring) em memória para o filtro por
+ * facetas: um bitmap por categoria, por faixa de preço e por vendedor.
+ *
+ * Os bitmaps guardam o próprio identificador do produto, então percorrê-los
+ * já devolve os produtos em ordem de identificador, e a página é lida direto
+ * do bitmap a partir do cursor. Os atributos de cada produto ficam em vetores
+ * indexados pelo identificador, que por isso precisa caber em um
+ * {@code int}. Valores da mesma faceta se combinam com OU e facetas
+ * diferentes com E. A contagem de cada faceta considera os filtros das outras
+ * facetas, para que o cliente veja quantos produtos teria ao trocar o valor
+ * escolhido; a de vendedor traz apenas os {@value #MAX_USER_FACETS} com mais
+ * produtos.
+ * 
+ * @author Caio Pereira Leal
+ */
+@Component
+public class ProductFacetIndex implements ProductIndex {
+
+	/**
+	 * Nome da faceta de categoria
+	 */
+	public static final String CATEGORY = "category";
+
+	/**
+	 * Nome da faceta de faixa de preço
+	 */
+	public static final String PRICE_BAND = "priceBand";
+
+	/**
+	 * Nome da faceta de vendedor
+	 */
+	public static final String USER = "userId";
+
+	/**
+	 * Quantidade máxima de vendedores na contagem da faceta de vendedor
+	 */
+	public static final int MAX_USER_FACETS = 20;
+
+	private static final Comparator<Map.Entry<String, Long>> BY_COUNT = Map.Entry.<String, Long>comparingByValue()
+			.thenComparing( Map.Entry.comparingByKey( Comparator.reverseOrder() ) );
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private RoaringBitmap live = new RoaringBitmap();
+
+	private Map<Category, RoaringBitmap> categories = new EnumMap<>( Category.class );
+
+	private Map<PriceBand, RoaringBitmap> priceBands = new EnumMap<>( PriceBand.class );
+
+	private Map<String, RoaringBitmap> users = new HashMap<>();
+
+	private Category[] categoryOf = new Category[1024];
+
+	private PriceBand[] priceBandOf = new PriceBand[1024];
+
+	private String[] userOf = new String[1024];
+
+	@Override
+	public void add(ProductRow product) {
+		PriceBand band = PriceBand.of( product.price() );
+		int id = Math.toIntExact( product.id() );
+		lock.writeLock().lock();
+		try {
+			removeLocked( product.id() );
+			ensureCapacity( id );
+			categoryOf[id] = product.category();
+			priceBandOf[id] = band;
+			userOf[id] = product.userId();
+			live.add( id );
+			if ( product.category() != null ) {
+				categories.computeIfAbsent( product.category(), c -> new RoaringBitmap() ).add( id );
+			}
+			if ( band != null ) {
+				priceBands.computeIfAbsent( band, b -> new RoaringBitmap() ).add( id );
+			}
+			if ( product.userId() != null ) {
+				users.computeIfAbsent( product.userId(), u -> new RoaringBitmap() ).add( id );
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void remove(Long productId) {
+		lock.writeLock().lock();
+		try {
+			removeLocked( productId );
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public ProductFacetIndex empty() {
+		return new ProductFacetIndex();
+	}
+
+	@Override
+	public void replaceWith(ProductIndex rebuilt) {
+		ProductFacetIndex other = (ProductFacetIndex) rebuilt;
+		lock.writeLock().lock();
+		try {
+			live = other.live;
+			categories = other.categories;
+			priceBands = other.priceBands;
+			users = other.users;
+			categoryOf = other.categoryOf;
+			priceBandOf = other.priceBandOf;
+			userOf = other.userOf;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Filtra os produtos e conta as facetas em uma única leitura do índice.
+	 * Um conjunto vazio não filtra a faceta.
+	 * 
+	 * @param categoryFilter
+	 * 			categorias aceitas
+	 * @param priceBandFilter
+	 * 			faixas de preço aceitas
+	 * @param userFilter
+	 * 			vendedores aceitos
+	 * @param after
+	 * 			devolve apenas identificadores maiores que este, ou null
+	 * @param limit
+	 * 			quantidade máxima de identificadores devolvidos
+	 * 
+	 * @return identificadores encontrados e contagem das facetas
+	 */
+	public ProductFilterDTO filter(Set<Category> categoryFilter, Set<PriceBand> priceBandFilter, Set<String> userFilter,
+			Long after, int limit) {
+		lock.readLock().lock();
+		try {
+			RoaringBitmap categoryMask = union( categories, categoryFilter );
+			RoaringBitmap priceBandMask = union( priceBands, priceBandFilter );
+			RoaringBitmap userMask = union( users, userFilter );
+
+			RoaringBitmap withoutCategory = intersect( priceBandMask, userMask );
+			RoaringBitmap withoutPriceBand = intersect( categoryMask, userMask );
+			RoaringBitmap withoutUser = intersect( categoryMask, priceBandMask );
+			RoaringBitmap matched = intersect( categoryMask, withoutCategory );
+
+			Map<String, Long> categoryCounts = new LinkedHashMap<>();
+			for ( Category category : Category.values() ) {
+				categoryCounts.put( category.name(), cardinality( categories.get( category ), withoutCategory ) );
+			}
+			Map<String, Long> priceBandCounts = new LinkedHashMap<>();
+			for ( PriceBand band : PriceBand.values() ) {
+				priceBandCounts.put( band.getLabel(), cardinality( priceBands.get( band ), withoutPriceBand ) );
+			}
+			// há muitos vendedores: percorre os produtos da faceta em vez de cruzar um bitmap por vendedor
+			Map<String, Long> userCounts = new HashMap<>();
+			withoutUser.forEach( (int id) -> userCounts.merge( userOf[id], 1L, Long::sum ) );
+			userCounts.remove( null );
+
+			List<Long> ids = new ArrayList<>( Math.min( limit, matched.getCardinality() ) );
+			if ( after == null || after < Integer.MAX_VALUE ) {
+				PeekableIntIterator iterator = matched.getIntIterator();
+				if ( after != null && after >= 0 ) {
+					iterator.advanceIfNeeded( (int) ( after + 1 ) );
+				}
+				while ( ids.size() < limit && iterator.hasNext() ) {
+					ids.add( (long) iterator.next() );
+				}
+			}
+
+			Map<String, Map<String, Long>> facets = new LinkedHashMap<>();
+			facets.put( CATEGORY, categoryCounts );
+			facets.put( PRICE_BAND, priceBandCounts );
+			facets.put( USER, topUsers( userCounts ) );
+			return new ProductFilterDTO( matched.getLongCardinality(), ids, facets );
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Vendedores com mais produtos, do maior para o menor, desempatando pelo
+	 * identificador
+	 */
+	private static Map<String, Long> topUsers(Map<String, Long> counts) {
+		PriorityQueue<Map.Entry<String, Long>> top = new PriorityQueue<>( MAX_USER_FACETS + 1, BY_COUNT );
+		for ( Map.Entry<String, Long> entry : counts.entrySet() ) {
+			top.offer( entry );
+			if ( top.size() > MAX_USER_FACETS ) {
+				top.poll();
+			}
+		}
+		List<Map.Entry<String, Long>> ordered = new ArrayList<>( top );
+		ordered.sort( BY_COUNT.reversed() );
+		Map<String, Long> result = new LinkedHashMap<>();
+		ordered.forEach( entry -> result.put( entry.getKey(), entry.getValue() ) );
+		return result;
+	}
+
+	private <K> RoaringBitmap union(Map<K, RoaringBitmap> bitmaps, Collection<K> keys) {
+		if ( keys == null || keys.isEmpty() ) {
+			return live;
+		}
+		return FastAggregation.or( keys.stream().map( bitmaps::get ).filter( Objects::nonNull ).iterator() );
+	}
+
+	private static RoaringBitmap intersect(RoaringBitmap first, RoaringBitmap second) {
+		return RoaringBitmap.and( first, second );
+	}
+
+	private static long cardinality(RoaringBitmap bitmap, RoaringBitmap mask) {
+		return bitmap == null ? 0 : RoaringBitmap.andCardinality( bitmap, mask );
+	}
+
+	private void removeLocked(Long productId) {
+		if ( productId < 0 || productId > Integer.MAX_VALUE || !live.contains( productId.intValue() ) ) {
+			return;
+		}
+		int id = productId.intValue();
+		live.remove( id );
+		removeFrom( categories, categoryOf[id], id );
+		removeFrom( priceBands, priceBandOf[id], id );
+		removeFrom( users, userOf[id], id );
+		categoryOf[id] = null;
+		priceBandOf[id] = null;
+		userOf[id] = null;
+	}
+
+	private static <K> void removeFrom(Map<K, RoaringBitmap> bitmaps, K key, int id) {
+		if ( key == null ) {
+			return;
+		}
+		RoaringBitmap bitmap = bitmaps.get( key );
+		bitmap.remove( id );
+		if ( bitmap.isEmpty() ) {
+			bitmaps.remove( key );
+		}
+	}
+
+	private void ensureCapacity(int id) {
+		if ( id >= userOf.length ) {
+			int capacity = Math.max( id + 1, userOf.length * 2 );
+			categoryOf = Arrays.copyOf( categoryOf, capacity );
+			priceBandOf = Arrays.copyOf( priceBandOf, capacity );
+			userOf = Arrays.copyOf( userOf, capacity );
+		}
+	}
+}
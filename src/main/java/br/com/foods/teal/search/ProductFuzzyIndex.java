@@ -0,0 +1,307 @@
+package br.com.foods.teal.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.stereotype.Component;
+
+import br.com.foods.teal.dto.ProductRow;
+
+/**
+ * Índice de trigramas em memória sobre as palavras dos nomes dos produtos,
+ * usado na busca tolerante a erros de digitação ("tomati", "alfase").
+ *
+ * Cada palavra do catálogo é quebrada em trigramas com marcadores de início e
+ * fim ({@code $tomate$} gera {@code $to}, {@code tom}, ..., {@code te$}). Uma
+ * palavra buscada só é comparada com as palavras que dividem trigramas
+ * suficientes com ela, e a distância de edição (com transposição) é então
+ * calculada com um limite: uma edição para palavras de até 5 letras e duas
+ * para as maiores. Palavras de até 2 letras só casam exatamente.
+ *
+ * Como o filtro exige ao menos um trigrama em comum, palavras muito curtas
+ * que diferem em todos os trigramas (como "sal" e "sol") não são sugeridas.
+ * 
+ * @author Caio Pereira Leal
+ */
+@Component
+public class ProductFuzzyIndex implements ProductIndex {
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private Map<String, Word> words = new HashMap<>();
+
+	private Map<String, Set<Word>> trigrams = new HashMap<>();
+
+	private Map<Long, Set<Word>> byProduct = new HashMap<>();
+
+	@Override
+	public void add(ProductRow product) {
+		Set<String> tokens = wordsOf( product.name() );
+		lock.writeLock().lock();
+		try {
+			removeLocked( product.id() );
+			if ( tokens.isEmpty() ) {
+				return;
+			}
+			Set<Word> productWords = new HashSet<>();
+			for ( String token : tokens ) {
+				Word word = words.computeIfAbsent( token, this::newWord );
+				word.products.add( product.id() );
+				productWords.add( word );
+			}
+			byProduct.put( product.id(), productWords );
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void remove(Long productId) {
+		lock.writeLock().lock();
+		try {
+			removeLocked( productId );
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public ProductFuzzyIndex empty() {
+		return new ProductFuzzyIndex();
+	}
+
+	@Override
+	public void replaceWith(ProductIndex rebuilt) {
+		ProductFuzzyIndex other = (ProductFuzzyIndex) rebuilt;
+		lock.writeLock().lock();
+		try {
+			words = other.words;
+			trigrams = other.trigrams;
+			byProduct = other.byProduct;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Busca os produtos cujos nomes têm palavras parecidas com as da busca.
+	 * Cada palavra da busca soma para o produto a proximidade da sua melhor
+	 * palavra correspondente (1 para igual, 1/2 para uma edição, 1/3 para
+	 * duas).
+	 * 
+	 * @param query
+	 * 			texto buscado
+	 * @param limit
+	 * 			quantidade máxima de resultados
+	 * 
+	 * @return produtos encontrados e a busca corrigida
+	 */
+	public FuzzyResult search(String query, int limit) {
+		Set<String> queryWords = wordsOf( query );
+		if ( queryWords.isEmpty() ) {
+			return new FuzzyResult( List.of(), null );
+		}
+
+		lock.readLock().lock();
+		try {
+			Map<Long, Double> scores = new HashMap<>();
+			List<String> corrected = new ArrayList<>();
+			boolean changed = false;
+			for ( String token : queryWords ) {
+				Map<Long, Double> tokenScores = new HashMap<>();
+				Word best = null;
+				int bestDistance = Integer.MAX_VALUE;
+				for ( Map.Entry<Word, Integer> match : matches( token ).entrySet() ) {
+					Word word = match.getKey();
+					int distance = match.getValue();
+					double similarity = 1.0 / ( 1 + distance );
+					for ( Long productId : word.products ) {
+						tokenScores.merge( productId, similarity, Math::max );
+					}
+					if ( distance < bestDistance || distance == bestDistance
+							&& ( word.products.size() > best.products.size()
+									|| word.products.size() == best.products.size() && word.text.compareTo( best.text ) < 0 ) ) {
+						best = word;
+						bestDistance = distance;
+					}
+				}
+				tokenScores.forEach( (productId, similarity) -> scores.merge( productId, similarity, Double::sum ) );
+				corrected.add( best == null ? token : best.text );
+				changed |= best != null && bestDistance > 0;
+			}
+
+			PriorityQueue<SearchHit> top = new PriorityQueue<>( limit + 1, ProductFuzzyIndex::worse );
+			scores.forEach( (productId, score) -> {
+				top.offer( new SearchHit( productId, score ) );
+				if ( top.size() > limit ) {
+					top.poll();
+				}
+			} );
+			SearchHit[] hits = new SearchHit[top.size()];
+			for ( int i = hits.length - 1; i >= 0; i-- ) {
+				hits[i] = top.poll();
+			}
+			return new FuzzyResult( List.of( hits ), changed ? String.join( " ", corrected ) : null );
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Palavras do catálogo a até a distância máxima da palavra buscada, com
+	 * a distância de cada uma
+	 */
+	private Map<Word, Integer> matches(String token) {
+		int maxDistance = maxDistance( token.length() );
+		Map<Word, Integer> matches = new HashMap<>();
+		if ( maxDistance == 0 ) {
+			Word word = words.get( token );
+			if ( word != null ) {
+				matches.put( word, 0 );
+			}
+			return matches;
+		}
+
+		List<String> grams = trigramsOf( token );
+		Map<Word, Integer> shared = new HashMap<>();
+		for ( String gram : grams ) {
+			for ( Word word : trigrams.getOrDefault( gram, Set.of() ) ) {
+				shared.merge( word, 1, Integer::sum );
+			}
+		}
+		shared.forEach( (word, count) -> {
+			if ( Math.abs( word.text.length() - token.length() ) > maxDistance ) {
+				return;
+			}
+			// inserção, remoção e troca alteram até três trigramas; a transposição de letras vizinhas, quatro
+			int required = Math.max( grams.size(), word.grams.size() ) - 4 * maxDistance;
+			if ( count < required ) {
+				return;
+			}
+			int distance = distance( token, word.text, maxDistance );
+			if ( distance <= maxDistance ) {
+				matches.put( word, distance );
+			}
+		} );
+		return matches;
+	}
+
+	private void removeLocked(Long productId) {
+		Set<Word> productWords = byProduct.remove( productId );
+		if ( productWords == null ) {
+			return;
+		}
+		for ( Word word : productWords ) {
+			word.products.remove( productId );
+			if ( word.products.isEmpty() ) {
+				words.remove( word.text );
+				for ( String gram : word.grams ) {
+					Set<Word> list = trigrams.get( gram );
+					list.remove( word );
+					if ( list.isEmpty() ) {
+						trigrams.remove( gram );
+					}
+				}
+			}
+		}
+	}
+
+	private Word newWord(String text) {
+		Word word = new Word( text );
+		for ( String gram : word.grams ) {
+			trigrams.computeIfAbsent( gram, g -> new HashSet<>() ).add( word );
+		}
+		return word;
+	}
+
+	private static Set<String> wordsOf(String text) {
+		Set<String> tokens = new LinkedHashSet<>();
+		for ( String token : TextAnalyzer.tokens( text ) ) {
+			if ( !TextAnalyzer.isStopword( token ) ) {
+				tokens.add( token );
+			}
+		}
+		return tokens;
+	}
+
+	private static int maxDistance(int length) {
+		if ( length <= 2 ) {
+			return 0;
+		}
+		return length <= 5 ? 1 : 2;
+	}
+
+	private static List<String> trigramsOf(String word) {
+		String padded = "$" + word + "$";
+		List<String> grams = new ArrayList<>( padded.length() - 2 );
+		for ( int i = 0; i + 3 <= padded.length(); i++ ) {
+			grams.add( padded.substring( i, i + 3 ) );
+		}
+		return grams;
+	}
+
+	/**
+	 * Distância de edição com transposição de letras vizinhas, abandonando o
+	 * cálculo assim que uma linha inteira passa do limite
+	 * 
+	 * @return a distância, ou {@code limit + 1} se passar do limite
+	 */
+	static int distance(String a, String b, int limit) {
+		int[] previous2 = new int[b.length() + 1];
+		int[] previous = new int[b.length() + 1];
+		int[] current = new int[b.length() + 1];
+		for ( int j = 0; j <= b.length(); j++ ) {
+			previous[j] = j;
+		}
+		for ( int i = 1; i <= a.length(); i++ ) {
+			current[0] = i;
+			int rowMin = current[0];
+			for ( int j = 1; j <= b.length(); j++ ) {
+				int cost = a.charAt( i - 1 ) == b.charAt( j - 1 ) ? 0 : 1;
+				int value = Math.min( Math.min( previous[j] + 1, current[j - 1] + 1 ), previous[j - 1] + cost );
+				if ( i > 1 && j > 1 && a.charAt( i - 1 ) == b.charAt( j - 2 ) && a.charAt( i - 2 ) == b.charAt( j - 1 ) ) {
+					value = Math.min( value, previous2[j - 2] + 1 );
+				}
+				current[j] = value;
+				rowMin = Math.min( rowMin, value );
+			}
+			if ( rowMin > limit ) {
+				return limit + 1;
+			}
+			int[] recycled = previous2;
+			previous2 = previous;
+			previous = current;
+			current = recycled;
+		}
+		return Math.min( previous[b.length()], limit + 1 );
+	}
+
+	private static int worse(SearchHit a, SearchHit b) {
+		int byScore = Double.compare( a.score(), b.score() );
+		return byScore != 0 ? byScore : Long.compare( b.productId(), a.productId() );
+	}
+
+	/**
+	 * Palavra do catálogo com seus trigramas e os produtos que a usam no nome
+	 */
+	private static final class Word {
+
+		private final String text;
+
+		private final List<String> grams;
+
+		private final Set<Long> products = new HashSet<>();
+
+		Word(String text) {
+			this.text = text;
+			this.grams = trigramsOf( text );
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package br.com.foods.teal.search;
+
+import br.com.foods.teal.dto.ProductRow;
+
+/**
+ * Índice em memória sobre os produtos, mantido a cada escrita de produto e
+ * reconstruído na inicialização da aplicação
+ * 
+ * @author Caio Pereira Leal
+ */
+public interface ProductIndex {
+
+	/**
+	 * Inclui o produto no índice, substituindo a versão anterior se existir
+	 * 
+	 * @param product
+	 * 			colunas do produto
+	 */
+	void add(ProductRow product);
+
+	/**
+	 * Remove o produto do índice
+	 * 
+	 * @param productId
+	 * 			identificador do produto
+	 */
+	void remove(Long productId);
+
+	/**
+	 * Cria um índice vazio do mesmo tipo, fora do contexto do Spring, onde a
+	 * reconstrução é montada sem afetar as consultas em andamento
+	 * 
+	 * @return índice vazio
+	 */
+	ProductIndex empty();
+
+	/**
+	 * Passa a responder com o conteúdo do índice reconstruído, de uma só vez
+	 * 
+	 * @param rebuilt
+	 * 			índice criado por {@link #empty()} e já preenchido
+	 */
+	void replaceWith(ProductIndex rebuilt);
+}
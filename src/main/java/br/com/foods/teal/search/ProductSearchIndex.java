@@ -0,0 +1,302 @@
+package br.com.foods.teal.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.stereotype.Component;
+
+import br.com.foods.teal.dto.ProductRow;
+
+/**
+ * Índice invertido em memória sobre o nome e a descrição dos produtos, com
+ * ranqueamento BM25. Termos do nome valem o dobro dos termos da descrição.
+ *
+ * Cada produto recebe um ordinal interno denso; as listas de ocorrência
+ * guardam ordinais e frequências em vetores de inteiros, e os ordinais de
+ * produtos removidos são reaproveitados.
+ * 
+ * @author Caio Pereira Leal
+ */
+@Component
+public class ProductSearchIndex implements ProductIndex {
+
+	private static final double K1 = 1.2;
+
+	private static final double B = 0.75;
+
+	private static final int NAME_WEIGHT = 2;
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private Map<String, Postings> postings = new HashMap<>();
+
+	private Map<Long, Integer> ordinals = new HashMap<>();
+
+	private long[] productIds = new long[1024];
+
+	private int[] lengths = new int[1024];
+
+	private String[][] terms = new String[1024][];
+
+	private int[] freeOrdinals = new int[64];
+
+	private int freeCount;
+
+	private int nextOrdinal;
+
+	private long totalLength;
+
+	@Override
+	public void add(ProductRow product) {
+		Map<String, Integer> frequencies = new HashMap<>();
+		for ( String term : TextAnalyzer.analyze( product.name() ) ) {
+			frequencies.merge( term, NAME_WEIGHT, Integer::sum );
+		}
+		for ( String term : TextAnalyzer.analyze( product.description() ) ) {
+			frequencies.merge( term, 1, Integer::sum );
+		}
+		int length = frequencies.values().stream().mapToInt( Integer::intValue ).sum();
+
+		lock.writeLock().lock();
+		try {
+			removeLocked( product.id() );
+			if ( frequencies.isEmpty() ) {
+				return;
+			}
+
+			int ordinal = allocateOrdinal();
+			productIds[ordinal] = product.id();
+			lengths[ordinal] = length;
+			terms[ordinal] = frequencies.keySet().toArray( String[]::new );
+			frequencies.forEach( (term, frequency) -> postings.computeIfAbsent( term, t -> new Postings() )
+					.add( ordinal, frequency ) );
+			ordinals.put( product.id(), ordinal );
+			totalLength += length;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void remove(Long productId) {
+		lock.writeLock().lock();
+		try {
+			removeLocked( productId );
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public ProductSearchIndex empty() {
+		return new ProductSearchIndex();
+	}
+
+	@Override
+	public void replaceWith(ProductIndex rebuilt) {
+		ProductSearchIndex other = (ProductSearchIndex) rebuilt;
+		lock.writeLock().lock();
+		try {
+			postings = other.postings;
+			ordinals = other.ordinals;
+			productIds = other.productIds;
+			lengths = other.lengths;
+			terms = other.terms;
+			freeOrdinals = other.freeOrdinals;
+			freeCount = other.freeCount;
+			nextOrdinal = other.nextOrdinal;
+			totalLength = other.totalLength;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Busca os produtos mais relevantes para o texto informado
+	 * 
+	 * @param query
+	 * 			texto buscado
+	 * @param limit
+	 * 			quantidade máxima de resultados
+	 * 
+	 * @return resultados em ordem decrescente de relevância
+	 */
+	public List<SearchHit> search(String query, int limit) {
+		List<String> queryTerms = new ArrayList<>( new LinkedHashSet<>( TextAnalyzer.analyze( query ) ) );
+		if ( queryTerms.isEmpty() ) {
+			return List.of();
+		}
+
+		lock.readLock().lock();
+		try {
+			int documents = ordinals.size();
+			if ( documents == 0 ) {
+				return List.of();
+			}
+			double averageLength = (double) totalLength / documents;
+
+			List<Postings> lists = new ArrayList<>( queryTerms.size() );
+			int touched = 0;
+			for ( String term : queryTerms ) {
+				Postings list = postings.get( term );
+				if ( list != null ) {
+					lists.add( list );
+					touched += list.size;
+				}
+			}
+
+			ScoreTable scores = new ScoreTable( touched );
+			for ( Postings list : lists ) {
+				double idf = Math.log( 1 + ( documents - list.size + 0.5 ) / ( list.size + 0.5 ) );
+				for ( int i = 0; i < list.size; i++ ) {
+					int ordinal = list.ordinals[i];
+					int frequency = list.frequencies[i];
+					double norm = K1 * ( 1 - B + B * lengths[ordinal] / averageLength );
+					scores.add( ordinal, idf * frequency * ( K1 + 1 ) / ( frequency + norm ) );
+				}
+			}
+
+			PriorityQueue<Integer> top = new PriorityQueue<>( limit + 1,
+					(x, y) -> Double.compare( scores.scoreAt( x ), scores.scoreAt( y ) ) );
+			for ( int i = 0; i < scores.size; i++ ) {
+				top.offer( i );
+				if ( top.size() > limit ) {
+					top.poll();
+				}
+			}
+
+			SearchHit[] hits = new SearchHit[top.size()];
+			for ( int i = hits.length - 1; i >= 0; i-- ) {
+				int entry = top.poll();
+				hits[i] = new SearchHit( productIds[scores.ordinalAt( entry )], scores.scoreAt( entry ) );
+			}
+			return List.of( hits );
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private void removeLocked(Long productId) {
+		Integer ordinal = ordinals.remove( productId );
+		if ( ordinal == null ) {
+			return;
+		}
+		for ( String term : terms[ordinal] ) {
+			Postings list = postings.get( term );
+			list.remove( ordinal );
+			if ( list.size == 0 ) {
+				postings.remove( term );
+			}
+		}
+		totalLength -= lengths[ordinal];
+		terms[ordinal] = null;
+		if ( freeCount == freeOrdinals.length ) {
+			freeOrdinals = Arrays.copyOf( freeOrdinals, freeCount * 2 );
+		}
+		freeOrdinals[freeCount++] = ordinal;
+	}
+
+	private int allocateOrdinal() {
+		if ( freeCount > 0 ) {
+			return freeOrdinals[--freeCount];
+		}
+		if ( nextOrdinal == productIds.length ) {
+			int capacity = productIds.length * 2;
+			productIds = Arrays.copyOf( productIds, capacity );
+			lengths = Arrays.copyOf( lengths, capacity );
+			terms = Arrays.copyOf( terms, capacity );
+		}
+		return nextOrdinal++;
+	}
+
+	/**
+	 * Pontuação acumulada por ordinal em endereçamento aberto, dimensionada
+	 * pelas listas de ocorrência tocadas pela busca e não pelo tamanho do
+	 * catálogo. As entradas ficam em ordem de inserção em {@code ordinals} e
+	 * {@code scores}.
+	 */
+	private static final class ScoreTable {
+
+		private final int[] slots;
+
+		private final int shift;
+
+		private final int[] ordinals;
+
+		private final double[] scores;
+
+		private int size;
+
+		ScoreTable(int maxEntries) {
+			int capacity = Integer.highestOneBit( Math.max( 1, maxEntries ) ) << 2;
+			this.slots = new int[capacity];
+			this.shift = Integer.numberOfLeadingZeros( capacity ) + 1;
+			this.ordinals = new int[maxEntries];
+			this.scores = new double[maxEntries];
+		}
+
+		void add(int ordinal, double score) {
+			int mask = slots.length - 1;
+			int slot = ( ordinal * 0x9E3779B9 ) >>> shift;
+			while ( slots[slot] != 0 ) {
+				int entry = slots[slot] - 1;
+				if ( ordinals[entry] == ordinal ) {
+					scores[entry] += score;
+					return;
+				}
+				slot = ( slot + 1 ) & mask;
+			}
+			ordinals[size] = ordinal;
+			scores[size] = score;
+			slots[slot] = ++size;
+		}
+
+		int ordinalAt(int entry) {
+			return ordinals[entry];
+		}
+
+		double scoreAt(int entry) {
+			return scores[entry];
+		}
+	}
+
+	/**
+	 * Lista de ocorrências de um termo: ordinais dos produtos e frequência do
+	 * termo em cada um, sem ordem definida
+	 */
+	private static final class Postings {
+
+		private int[] ordinals = new int[4];
+
+		private int[] frequencies = new int[4];
+
+		private int size;
+
+		void add(int ordinal, int frequency) {
+			if ( size == ordinals.length ) {
+				ordinals = Arrays.copyOf( ordinals, size * 2 );
+				frequencies = Arrays.copyOf( frequencies, size * 2 );
+			}
+			ordinals[size] = ordinal;
+			frequencies[size] = frequency;
+			size++;
+		}
+
+		void remove(int ordinal) {
+			for ( int i = 0; i < size; i++ ) {
+				if ( ordinals[i] == ordinal ) {
+					size--;
+					ordinals[i] = ordinals[size];
+					frequencies[i] = frequencies[size];
+					return;
+				}
+			}
+		}
+	}
+}
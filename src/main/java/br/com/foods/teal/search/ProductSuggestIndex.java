@@ -0,0 +1,360 @@
+package br.com.foods.teal.search;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.stereotype.Component;
+
+import br.com.foods.teal.dto.ProductRow;
+
+/**
+ * Árvore de prefixos (trie) em memória sobre os nomes dos produtos, usada no
+ * autocompletar da busca.
+ *
+ * Os nomes são normalizados (sem acentos, minúsculas, espaços simples) e
+ * inseridos a partir do início e de cada palavra que não seja palavra vazia,
+ * de modo que "mac" sugere tanto "Maçã Fuji" quanto "Suco de Maçã". Produtos
+ * com o mesmo nome normalizado viram uma única sugestão.
+ *
+ * Cada nó guarda as {@value #MAX_SUGGESTIONS} melhores sugestões da sua
+ * subárvore, ordenadas pela alteração mais recente, e os filhos ficam em
+ * vetores ordenados por caractere. A consulta percorre apenas o prefixo e
+ * devolve a lista já pronta do nó.
+ * 
+ * @author Caio Pereira Leal
+ */
+@Component
+public class ProductSuggestIndex implements ProductIndex {
+
+	/**
+	 * Quantidade máxima de sugestões guardadas por nó
+	 */
+	public static final int MAX_SUGGESTIONS = 10;
+
+	private static final Comparator<Suggestion> RANKING = Comparator
+			.comparingLong( (Suggestion suggestion) -> suggestion.recency ).reversed()
+			.thenComparing( suggestion -> suggestion.key );
+
+	private static final char[] NO_LABELS = new char[0];
+
+	private static final Node[] NO_CHILDREN = new Node[0];
+
+	private static final Suggestion[] NO_SUGGESTIONS = new Suggestion[0];
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private Map<String, Suggestion> suggestions = new HashMap<>();
+
+	private Map<Long, Suggestion> byProduct = new HashMap<>();
+
+	private Node root = new Node();
+
+	@Override
+	public void add(ProductRow product) {
+		String key = normalize( product.name() );
+		lock.writeLock().lock();
+		try {
+			removeLocked( product.id() );
+			if ( key.isEmpty() ) {
+				return;
+			}
+			Suggestion suggestion = suggestions.get( key );
+			boolean created = suggestion == null;
+			if ( created ) {
+				suggestion = new Suggestion( key, product.name().strip() );
+				suggestions.put( key, suggestion );
+			}
+			suggestion.products.put( product.id(), recencyOf( product ) );
+			suggestion.refreshRecency();
+			byProduct.put( product.id(), suggestion );
+			for ( String path : pathsOf( key ) ) {
+				if ( created ) {
+					insert( path, suggestion );
+				} else {
+					rerank( path );
+				}
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void remove(Long productId) {
+		lock.writeLock().lock();
+		try {
+			removeLocked( productId );
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public ProductSuggestIndex empty() {
+		return new ProductSuggestIndex();
+	}
+
+	@Override
+	public void replaceWith(ProductIndex rebuilt) {
+		ProductSuggestIndex other = (ProductSuggestIndex) rebuilt;
+		lock.writeLock().lock();
+		try {
+			suggestions = other.suggestions;
+			byProduct = other.byProduct;
+			root = other.root;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Busca os nomes de produto que começam com o prefixo, no início do nome
+	 * ou de uma de suas palavras
+	 * 
+	 * @param prefix
+	 * 			texto digitado
+	 * @param limit
+	 * 			quantidade máxima de sugestões, limitada a {@value #MAX_SUGGESTIONS}
+	 * 
+	 * @return nomes sugeridos, dos alterados mais recentemente para os mais antigos
+	 */
+	public List<String> suggest(String prefix, int limit) {
+		String key = normalize( prefix );
+		if ( key.isEmpty() ) {
+			return List.of();
+		}
+		lock.readLock().lock();
+		try {
+			Node node = root;
+			for ( int i = 0; i < key.length() && node != null; i++ ) {
+				node = node.child( key.charAt( i ) );
+			}
+			if ( node == null ) {
+				return List.of();
+			}
+			int size = Math.min( limit, node.top.length );
+			String[] names = new String[size];
+			for ( int i = 0; i < size; i++ ) {
+				names[i] = node.top[i].name;
+			}
+			return List.of( names );
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private void removeLocked(Long productId) {
+		Suggestion suggestion = byProduct.remove( productId );
+		if ( suggestion == null ) {
+			return;
+		}
+		suggestion.products.remove( productId );
+		if ( suggestion.products.isEmpty() ) {
+			suggestions.remove( suggestion.key );
+			for ( String path : pathsOf( suggestion.key ) ) {
+				delete( path, suggestion );
+			}
+			return;
+		}
+		suggestion.refreshRecency();
+		for ( String path : pathsOf( suggestion.key ) ) {
+			rerank( path );
+		}
+	}
+
+	private void insert(String path, Suggestion suggestion) {
+		Node[] nodes = new Node[path.length() + 1];
+		nodes[0] = root;
+		for ( int i = 0; i < path.length(); i++ ) {
+			nodes[i + 1] = nodes[i].childOrCreate( path.charAt( i ) );
+		}
+		nodes[path.length()].addTerminal( suggestion );
+		recompute( nodes );
+	}
+
+	private void delete(String path, Suggestion suggestion) {
+		Node[] nodes = walk( path );
+		if ( nodes == null ) {
+			return;
+		}
+		nodes[path.length()].removeTerminal( suggestion );
+		for ( int i = path.length(); i > 0; i-- ) {
+			if ( nodes[i].isEmpty() ) {
+				nodes[i - 1].removeChild( path.charAt( i - 1 ) );
+			}
+		}
+		recompute( nodes );
+	}
+
+	private void rerank(String path) {
+		Node[] nodes = walk( path );
+		if ( nodes != null ) {
+			recompute( nodes );
+		}
+	}
+
+	private Node[] walk(String path) {
+		Node[] nodes = new Node[path.length() + 1];
+		nodes[0] = root;
+		for ( int i = 0; i < path.length(); i++ ) {
+			nodes[i + 1] = nodes[i].child( path.charAt( i ) );
+			if ( nodes[i + 1] == null ) {
+				return null;
+			}
+		}
+		return nodes;
+	}
+
+	/**
+	 * Recalcula as melhores sugestões dos nós do caminho, das folhas para a
+	 * raiz, a partir das sugestões próprias do nó e das já calculadas nos
+	 * filhos
+	 */
+	private static void recompute(Node[] nodes) {
+		for ( int i = nodes.length - 1; i >= 0; i-- ) {
+			Node node = nodes[i];
+			if ( node.isEmpty() && i > 0 ) {
+				continue;
+			}
+			Set<Suggestion> candidates = Collections.newSetFromMap( new IdentityHashMap<>() );
+			candidates.addAll( Arrays.asList( node.terminals ) );
+			for ( Node child : node.children ) {
+				candidates.addAll( Arrays.asList( child.top ) );
+			}
+			node.top = candidates.stream().sorted( RANKING ).limit( MAX_SUGGESTIONS ).toArray( Suggestion[]::new );
+		}
+	}
+
+	/**
+	 * Caminhos em que a sugestão é inserida: o nome inteiro e o restante do
+	 * nome a partir de cada palavra que não seja palavra vazia
+	 */
+	private static List<String> pathsOf(String key) {
+		List<String> paths = new ArrayList<>();
+		paths.add( key );
+		int start = 0;
+		while ( ( start = key.indexOf( ' ', start ) + 1 ) > 0 ) {
+			int end = key.indexOf( ' ', start );
+			String word = end < 0 ? key.substring( start ) : key.substring( start, end );
+			if ( !TextAnalyzer.isStopword( word ) ) {
+				paths.add( key.substring( start ) );
+			}
+		}
+		return paths;
+	}
+
+	private static String normalize(String text) {
+		return String.join( " ", TextAnalyzer.tokens( text ) );
+	}
+
+	private static long recencyOf(ProductRow product) {
+		LocalDateTime date = product.updateDate() != null ? product.updateDate() : product.createDate();
+		return date == null ? 0 : date.toEpochSecond( ZoneOffset.UTC );
+	}
+
+	/**
+	 * Nome sugerido, compartilhado pelos produtos com o mesmo nome normalizado
+	 */
+	private static final class Suggestion {
+
+		private final String key;
+
+		private final String name;
+
+		private final Map<Long, Long> products = new HashMap<>();
+
+		private long recency;
+
+		Suggestion(String key, String name) {
+			this.key = key;
+			this.name = name;
+		}
+
+		void refreshRecency() {
+			recency = products.values().stream().mapToLong( Long::longValue ).max().orElse( 0 );
+		}
+	}
+
+	/**
+	 * Nó da árvore: filhos em vetores ordenados por caractere, sugestões que
+	 * terminam no nó e as melhores sugestões da subárvore
+	 */
+	private static final class Node {
+
+		private char[] labels = NO_LABELS;
+
+		private Node[] children = NO_CHILDREN;
+
+		private Suggestion[] terminals = NO_SUGGESTIONS;
+
+		private Suggestion[] top = NO_SUGGESTIONS;
+
+		Node child(char label) {
+			int index = Arrays.binarySearch( labels, label );
+			return index >= 0 ? children[index] : null;
+		}
+
+		Node childOrCreate(char label) {
+			int index = Arrays.binarySearch( labels, label );
+			if ( index >= 0 ) {
+				return children[index];
+			}
+			int insertAt = -index - 1;
+			Node child = new Node();
+			labels = insertAt( labels, insertAt, label );
+			Node[] grown = new Node[children.length + 1];
+			System.arraycopy( children, 0, grown, 0, insertAt );
+			grown[insertAt] = child;
+			System.arraycopy( children, insertAt, grown, insertAt + 1, children.length - insertAt );
+			children = grown;
+			return child;
+		}
+
+		void removeChild(char label) {
+			int index = Arrays.binarySearch( labels, label );
+			if ( index < 0 ) {
+				return;
+			}
+			char[] shrunkLabels = new char[labels.length - 1];
+			Node[] shrunkChildren = new Node[children.length - 1];
+			System.arraycopy( labels, 0, shrunkLabels, 0, index );
+			System.arraycopy( labels, index + 1, shrunkLabels, index, labels.length - index - 1 );
+			System.arraycopy( children, 0, shrunkChildren, 0, index );
+			System.arraycopy( children, index + 1, shrunkChildren, index, children.length - index - 1 );
+			labels = shrunkLabels;
+			children = shrunkChildren;
+		}
+
+		void addTerminal(Suggestion suggestion) {
+			terminals = Arrays.copyOf( terminals, terminals.length + 1 );
+			terminals[terminals.length - 1] = suggestion;
+		}
+
+		void removeTerminal(Suggestion suggestion) {
+			terminals = Arrays.stream( terminals ).filter( terminal -> terminal != suggestion )
+					.toArray( Suggestion[]::new );
+		}
+
+		boolean isEmpty() {
+			return terminals.length == 0 && children.length == 0;
+		}
+
+		private static char[] insertAt(char[] array, int index, char value) {
+			char[] grown = new char[array.length + 1];
+			System.arraycopy( array, 0, grown, 0, index );
+			grown[index] = value;
+			System.arraycopy( array, index, grown, index + 1, array.length - index );
+			return grown;
+		}
+	}
+}
@@ -0,0 +1,12 @@
+package br.com.foods.teal.search;
+
+/**
+ * Resultado de uma busca no índice
+ * 
+ * @param productId identificador do produto
+ * @param score relevância do produto para a busca
+ * 
+ * @author Caio Pereira Leal
+ */
+public record SearchHit(Long productId, double score) {
+}
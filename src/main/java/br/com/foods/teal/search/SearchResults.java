@@ -0,0 +1,37 @@
+package br.com.foods.teal.search;
+
+import java.util.List;
+
+import org.springframework.http.ResponseEntity;
+
+import br.com.foods.teal.dto.ProductDTO;
+
+/**
+ * Produtos encontrados por uma busca textual
+ *
+ * @param items produtos em ordem de relevância
+ * @param didYouMean busca corrigida sugerida ao cliente, ou null
+ *
+ * @author Caio Pereira Leal
+ */
+public record SearchResults(List<ProductDTO> items, String didYouMean) {
+
+	/**
+	 * Cabeçalho de resposta que carrega a busca corrigida ("você quis dizer")
+	 */
+	public static final String DID_YOU_MEAN_HEADER = "X-Did-You-Mean";
+
+	/**
+	 * Monta a resposta com os produtos no corpo e a busca corrigida no
+	 * cabeçalho {@value #DID_YOU_MEAN_HEADER}
+	 *
+	 * @return resposta HTTP
+	 */
+	public ResponseEntity<List<ProductDTO>> toResponse() {
+		ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+		if ( didYouMean != null ) {
+			builder.header( DID_YOU_MEAN_HEADER, didYouMean );
+		}
+		return builder.body( items );
+	}
+}
@@ -0,0 +1,98 @@
+package br.com.foods.teal.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Responsável por quebrar textos em termos de busca: minúsculas, sem acentos,
+ * sem palavras vazias do português e reduzidos ao radical
+ * 
+ * @author Caio Pereira Leal
+ */
+public final class TextAnalyzer {
+
+	private static final Pattern DIACRITICS = Pattern.compile( "\\p{M}+" );
+
+	private static final Set<String> STOPWORDS = Set.of(
+			"a", "o", "as", "os", "e", "de", "da", "do", "das", "dos", "em", "na", "no", "nas", "nos",
+			"um", "uma", "uns", "umas", "com", "sem", "para", "pra", "por", "pelo", "pela", "ou", "que" );
+
+	private TextAnalyzer() {
+	}
+
+	/**
+	 * Remove acentos e converte para minúsculas
+	 * 
+	 * @param text
+	 * 			texto original
+	 * 
+	 * @return texto normalizado
+	 */
+	public static String fold(String text) {
+		if ( text == null ) {
+			return "";
+		}
+		String decomposed = Normalizer.normalize( text, Normalizer.Form.NFD );
+		return DIACRITICS.matcher( decomposed ).replaceAll( "" ).toLowerCase( Locale.ROOT );
+	}
+
+	/**
+	 * Quebra o texto em palavras normalizadas, sem remover palavras vazias nem
+	 * reduzir ao radical
+	 * 
+	 * @param text
+	 * 			texto original
+	 * 
+	 * @return palavras
+	 */
+	public static List<String> tokens(String text) {
+		List<String> tokens = new ArrayList<>();
+		String folded = fold( text );
+		int start = -1;
+		for ( int i = 0; i <= folded.length(); i++ ) {
+			boolean wordChar = i < folded.length() && Character.isLetterOrDigit( folded.charAt( i ) );
+			if ( wordChar && start < 0 ) {
+				start = i;
+			} else if ( !wordChar && start >= 0 ) {
+				tokens.add( folded.substring( start, i ) );
+				start = -1;
+			}
+		}
+		return tokens;
+	}
+
+	/**
+	 * Informa se a palavra é uma palavra vazia do português (artigos,
+	 * preposições e conjunções)
+	 * 
+	 * @param token
+	 * 			palavra já normalizada
+	 * 
+	 * @return true se for palavra vazia
+	 */
+	public static boolean isStopword(String token) {
+		return STOPWORDS.contains( token );
+	}
+
+	/**
+	 * Quebra o texto em termos de busca
+	 * 
+	 * @param text
+	 * 			texto original
+	 * 
+	 * @return termos já reduzidos ao radical
+	 */
+	public static List<String> analyze(String text) {
+		List<String> terms = new ArrayList<>();
+		for ( String token : tokens( text ) ) {
+			if ( !isStopword( token ) ) {
+				terms.add( PortugueseStemmer.stem( token ) );
+			}
+		}
+		return terms;
+	}
+}
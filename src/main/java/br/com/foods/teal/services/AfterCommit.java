@@ -0,0 +1,37 @@
+package br.com.foods.teal.services;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Executa ações em memória (caches e índices) somente depois que a escrita no
+ * banco foi confirmada, para que nenhuma leitura concorrente enxergue um
+ * estado que ainda pode ser desfeito
+ * 
+ * @author Caio Pereira Leal
+ */
+final class AfterCommit {
+
+	private AfterCommit() {
+	}
+
+	/**
+	 * Agenda a ação para depois do commit da transação atual, ou executa na
+	 * hora quando não há transação
+	 * 
+	 * @param action
+	 * 			ação a executar
+	 */
+	static void run(Runnable action) {
+		if ( TransactionSynchronizationManager.isSynchronizationActive() ) {
+			TransactionSynchronizationManager.registerSynchronization( new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					action.run();
+				}
+			} );
+		} else {
+			action.run();
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package br.com.foods.teal.services;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom de textos, seguro para uso concorrente sem bloqueio.
+ * Responde "com certeza não existe" ou "talvez exista"; não permite remoção.
+ *
+ * As posições de cada valor vêm de dois hashes de 64 bits combinados
+ * ({@code h1 + i * h2}), como em Kirsch e Mitzenmacher.
+ *
+ * @author Caio Pereira Leal
+ */
+final class BloomFilter {
+
+	private final AtomicLongArray bits;
+
+	private final long bitCount;
+
+	private final int hashCount;
+
+	private final long capacity;
+
+	private final AtomicLong insertions = new AtomicLong();
+
+	/**
+	 * Cria um filtro dimensionado para a quantidade de valores e a taxa de
+	 * falso positivo desejadas
+	 *
+	 * @param capacity
+	 * 			quantidade de valores esperada
+	 * @param falsePositiveRate
+	 * 			taxa de falso positivo com o filtro cheio, entre 0 e 1
+	 */
+	BloomFilter(long capacity, double falsePositiveRate) {
+		this.capacity = Math.max( 1, capacity );
+		long optimalBits = (long) Math.ceil( -this.capacity * Math.log( falsePositiveRate ) / ( Math.log( 2 ) * Math.log( 2 ) ) );
+		this.bitCount = Math.max( 64, ( optimalBits + 63 ) / 64 * 64 );
+		this.hashCount = Math.max( 1, (int) Math.round( (double) bitCount / this.capacity * Math.log( 2 ) ) );
+		this.bits = new AtomicLongArray( (int) ( bitCount / 64 ) );
+	}
+
+	/**
+	 * Inclui o valor no filtro
+	 *
+	 * @param value
+	 * 			valor a incluir, ignorado quando nulo
+	 */
+	void put(String value) {
+		if ( value == null ) {
+			return;
+		}
+		long h1 = hash( value, 0x9E3779B97F4A7C15L );
+		long h2 = hash( value, 0xC2B2AE3D27D4EB4FL ) | 1;
+		for ( int i = 0; i < hashCount; i++ ) {
+			long index = Math.floorMod( h1 + i * h2, bitCount );
+			int word = (int) ( index >>> 6 );
+			long mask = 1L << index;
+			long current;
+			while ( ( ( current = bits.get( word ) ) & mask ) == 0 && !bits.compareAndSet( word, current, current | mask ) ) {
+				// outra thread alterou a palavra; tenta de novo
+			}
+		}
+		insertions.incrementAndGet();
+	}
+
+	/**
+	 * Informa se o valor pode ter sido incluído
+	 *
+	 * @param value
+	 * 			valor procurado
+	 *
+	 * @return false quando o valor com certeza não foi incluído
+	 */
+	boolean mightContain(String value) {
+		if ( value == null ) {
+			return false;
+		}
+		long h1 = hash( value, 0x9E3779B97F4A7C15L );
+		long h2 = hash( value, 0xC2B2AE3D27D4EB4FL ) | 1;
+		for ( int i = 0; i < hashCount; i++ ) {
+			long index = Math.floorMod( h1 + i * h2, bitCount );
+			if ( ( bits.get( (int) ( index >>> 6 ) ) & ( 1L << index ) ) == 0 ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Taxa de falso positivo estimada para a quantidade atual de valores,
+	 * {@code (1 - e^(-k n / m))^k}
+	 *
+	 * @return taxa estimada entre 0 e 1
+	 */
+	double expectedFalsePositiveRate() {
+		return Math.pow( 1 - Math.exp( -hashCount * (double) insertions.get() / bitCount ), hashCount );
+	}
+
+	/**
+	 * Informa se já recebeu mais valores do que a capacidade planejada
+	 *
+	 * @return true quando está acima da capacidade
+	 */
+	boolean isSaturated() {
+		return insertions.get() > capacity;
+	}
+
+	/**
+	 * Hash de 64 bits sobre os bytes UTF-8 do valor, com a finalização do
+	 * MurmurHash3
+	 */
+	private static long hash(String value, long seed) {
+		long h = seed;
+		for ( byte b : value.getBytes( StandardCharsets.UTF_8 ) ) {
+			h = ( h ^ ( b & 0xFF ) ) * 0x100000001B3L;
+		}
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
@@ -0,0 +1,217 @@
+package br.com.foods.teal.services;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import br.com.foods.teal.dto.ProductFields;
+import br.com.foods.teal.pagination.CursorPage;
+import br.com.foods.teal.services.ResponseFormats.ResponseFormat;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Serviço que guarda as páginas do catálogo já serializadas em cada formato
+ * de resposta (e comprimidas em gzip), identificadas por uma versão do
+ * catálogo que muda a cada escrita de produto. A versão é usada como ETag
+ * forte.
+ * 
+ * @author Caio Pereira Leal
+ */
+@Service
+public class CatalogCacheService {
+
+	private static final String GZIP = "gzip";
+
+	/**
+	 * Começa no horário de início para que uma ETag emitida antes de um
+	 * reinício não seja reaproveitada com outro conteúdo
+	 */
+	private final AtomicLong version = new AtomicLong( System.currentTimeMillis() );
+
+	private final Cache<String, CatalogPage> pages;
+
+	private final SingleFlight<String, CatalogPage> pageLoads;
+
+	/**
+	 * Cria o cache de páginas
+	 * 
+	 * @param maxPages
+	 * 			quantidade máxima de páginas guardadas
+	 * @param meterRegistry
+	 * 			registro de métricas
+	 */
+	public CatalogCacheService(@Value("${app.catalog-cache.max-pages:1000}") long maxPages,
+			MeterRegistry meterRegistry) {
+		this.pages = Caffeine.newBuilder().maximumSize( maxPages ).build();
+		this.pageLoads = new SingleFlight<>( "catalog-page", meterRegistry );
+	}
+
+	/**
+	 * Retorna a versão atual do catálogo
+	 * 
+	 * @return versão
+	 */
+	public long version() {
+		return version.get();
+	}
+
+	/**
+	 * Retorna a página serializada da versão atual, carregando e serializando
+	 * apenas se ainda não estiver no cache. A carga acontece fora do cache:
+	 * carregar dentro do {@code compute} prenderia a entrada enquanto espera
+	 * uma conexão, e a invalidação feita após o commit por quem ainda segura
+	 * a sua conexão ficaria esperando essa entrada, travando o pool. Buscas
+	 * simultâneas da mesma página são agrupadas em uma só carga.
+	 * 
+	 * @param cursor
+	 * 			cursor da página
+	 * @param size
+	 * 			tamanho da página
+	 * @param sort
+	 * 			ordenação
+	 * @param fields
+	 * 			campos pedidos, ou null para o produto completo
+	 * @param format
+	 * 			formato da resposta
+	 * @param loader
+	 * 			busca da página no banco
+	 * 
+	 * @return página serializada
+	 */
+	public CatalogPage getPage(String cursor, Integer size, String sort, ProductFields fields, ResponseFormat format,
+			Supplier<? extends CursorPage<?>> loader) {
+		long current = version.get();
+		String key = current + "|" + cursor + "|" + size + "|" + sort + "|" + fields + "|" + format.tag();
+		CatalogPage cached = pages.getIfPresent( key );
+		if ( cached != null ) {
+			return cached;
+		}
+		return pageLoads.execute( key, () -> {
+			CatalogPage page = serialize( current, format, loader.get() );
+			if ( version.get() == current ) {
+				pages.put( key, page );
+			}
+			return page;
+		} );
+	}
+
+	/**
+	 * Muda a versão do catálogo e descarta as páginas guardadas. Dentro de uma
+	 * transação a troca acontece só após o commit, para que nenhuma leitura
+	 * guarde dados antigos com a versão nova.
+	 */
+	public void invalidate() {
+		AfterCommit.run( this::bump );
+	}
+
+	private void bump() {
+		version.incrementAndGet();
+		pages.invalidateAll();
+	}
+
+	private CatalogPage serialize(long version, ResponseFormat format, CursorPage<?> page) {
+		try {
+			byte[] body = format.mapper().writeValueAsBytes( page.items() );
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream( body.length / 4 + 64 );
+			try ( GZIPOutputStream gzip = new GZIPOutputStream( compressed ) ) {
+				gzip.write( body );
+			}
+			return new CatalogPage( version, format.mediaType(), format.tag(), body, compressed.toByteArray(),
+					page.nextCursor() );
+		} catch (IOException e) {
+			throw new UncheckedIOException( "Falha ao serializar o catálogo", e );
+		}
+	}
+
+	/**
+	 * Página do catálogo já serializada
+	 * 
+	 * @param version versão do catálogo
+	 * @param contentType tipo do conteúdo do corpo
+	 * @param formatTag sufixo do formato na ETag, vazio para JSON
+	 * @param body corpo serializado
+	 * @param gzip corpo comprimido com gzip
+	 * @param nextCursor cursor da próxima página ou null
+	 */
+	public record CatalogPage(long version, MediaType contentType, String formatTag, byte[] body, byte[] gzip,
+			String nextCursor) {
+
+		/**
+		 * Monta a resposta, com 304 quando o cliente já tem esta versão e com
+		 * o corpo comprimido quando o cliente aceita gzip
+		 * 
+		 * @param ifNoneMatch
+		 * 			cabeçalho {@code If-None-Match} recebido
+		 * @param acceptEncoding
+		 * 			cabeçalho {@code Accept-Encoding} recebido
+		 * 
+		 * @return resposta HTTP
+		 */
+		public ResponseEntity<byte[]> toResponse(String ifNoneMatch, String acceptEncoding) {
+			boolean compressed = acceptsGzip( acceptEncoding );
+			boolean notModified = matches( ifNoneMatch );
+			String etag = "\"" + tag() + ( compressed ? "-" + GZIP : "" ) + "\"";
+
+			ResponseEntity.BodyBuilder builder = notModified ? ResponseEntity.status( HttpStatus.NOT_MODIFIED )
+					: ResponseEntity.ok();
+			builder.eTag( etag ).header( HttpHeaders.VARY, HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING );
+			if ( nextCursor != null ) {
+				builder.header( CursorPage.NEXT_CURSOR_HEADER, nextCursor );
+			}
+			if ( notModified ) {
+				return builder.build();
+			}
+			if ( compressed ) {
+				builder.header( HttpHeaders.CONTENT_ENCODING, GZIP );
+			}
+			return builder.contentType( contentType ).body( compressed ? gzip : body );
+		}
+
+		private String tag() {
+			return formatTag.isEmpty() ? String.valueOf( version ) : version + "-" + formatTag;
+		}
+
+		private boolean matches(String ifNoneMatch) {
+			if ( ifNoneMatch == null ) {
+				return false;
+			}
+			for ( String tag : ifNoneMatch.split( "," ) ) {
+				String value = tag.trim();
+				if ( value.startsWith( "W/" ) ) {
+					value = value.substring( 2 );
+				}
+				if ( value.equals( "*" ) || value.equals( "\"" + tag() + "\"" )
+						|| value.equals( "\"" + tag() + "-" + GZIP + "\"" ) ) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private static boolean acceptsGzip(String acceptEncoding) {
+			if ( acceptEncoding == null ) {
+				return false;
+			}
+			for ( String coding : acceptEncoding.split( "," ) ) {
+				String[] parts = coding.trim().split( ";" );
+				if ( parts[0].trim().equalsIgnoreCase( GZIP ) ) {
+					return parts.length == 1 || !parts[1].replace( " ", "" ).matches( "q=0(\\.0*)?" );
+				}
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,241 @@
+package br.com.foods.teal.services;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import br.com.foods.teal.pagination.CursorPage;
+import br.com.foods.teal.pagination.KeysetCursor;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Índice em memória dos nomes das imagens enviadas (sem as
+ * {@link ImageVariant versões reduzidas}), em ordem, para listar o
+ * diretório em páginas sem percorrê-lo. É montado lendo o disco na
+ * inicialização e mantido em dia pelas gravações do
+ * {@link ImageStorageService} e por um {@link WatchService}, que acompanha
+ * também arquivos incluídos ou removidos por outros caminhos (como a
+ * {@link br.com.foods.teal.tools.ImageLayoutMigration migração} ou cópias
+ * feitas direto no disco).
+ *
+ * @author Caio Pereira Leal
+ */
+@Service
+public class ImageDirectoryIndex {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger( ImageDirectoryIndex.class );
+
+	private final NavigableSet<String> names = new ConcurrentSkipListSet<>();
+
+	@Value("${app.upload.dir:${user.home}}")
+	private String uploadDir;
+
+	@Value("${app.pagination.default-size:50}")
+	private int defaultPageSize;
+
+	@Value("${app.pagination.max-size:500}")
+	private int maxPageSize;
+
+	private Path imageDir;
+
+	private WatchService watcher;
+
+	/**
+	 * Lê o diretório de imagens e começa a acompanhar as mudanças
+	 *
+	 * @throws IOException
+	 * 				Exceção ao ler o diretório
+	 */
+	@PostConstruct
+	void start() throws IOException {
+		imageDir = Paths.get( uploadDir ).resolve( "product-images" ).toAbsolutePath().normalize();
+		Files.createDirectories( imageDir );
+		watcher = imageDir.getFileSystem().newWatchService();
+		imageDir.register( watcher, ENTRY_CREATE, ENTRY_DELETE );
+		try ( DirectoryStream<Path> entries = Files.newDirectoryStream( imageDir ) ) {
+			for ( Path entry : entries ) {
+				if ( Files.isDirectory( entry ) ) {
+					if ( ImageLayout.isShard( entry.getFileName().toString() ) ) {
+						entry.register( watcher, ENTRY_CREATE, ENTRY_DELETE );
+						scan( entry );
+					}
+				} else {
+					track( entry.getFileName().toString() );
+				}
+			}
+		}
+
+		Thread thread = new Thread( this::watch, "image-directory-index" );
+		thread.setDaemon( true );
+		thread.start();
+	}
+
+	/**
+	 * Para de acompanhar o diretório
+	 *
+	 * @throws IOException
+	 * 				Exceção ao fechar o {@link WatchService}
+	 */
+	@PreDestroy
+	void stop() throws IOException {
+		watcher.close();
+	}
+
+	/**
+	 * Registra uma imagem recém-gravada, sem esperar o aviso do
+	 * {@link WatchService}
+	 *
+	 * @param filename
+	 * 			nome da imagem
+	 */
+	public void add(String filename) {
+		track( filename );
+	}
+
+	/**
+	 * Retira uma imagem apagada pela aplicação
+	 *
+	 * @param filename
+	 * 			nome da imagem
+	 */
+	public void remove(String filename) {
+		names.remove( filename );
+	}
+
+	/**
+	 * Quantidade de imagens guardadas
+	 *
+	 * @return quantidade
+	 */
+	public int size() {
+		return names.size();
+	}
+
+	/**
+	 * Lista as imagens em ordem de nome, paginadas por cursor
+	 *
+	 * @param cursor
+	 * 			cursor da página anterior ou null para a primeira página
+	 * @param size
+	 * 			tamanho da página
+	 *
+	 * @return página de nomes
+	 */
+	public CursorPage<String> page(String cursor, Integer size) {
+		int limit = KeysetCursor.pageSize( size, defaultPageSize, maxPageSize );
+		Iterator<String> iterator = ( cursor == null ? names : names.tailSet( decode( cursor ), false ) ).iterator();
+		List<String> items = new ArrayList<>( Math.min( limit, names.size() ) );
+		while ( items.size() < limit && iterator.hasNext() ) {
+			items.add( iterator.next() );
+		}
+		String next = iterator.hasNext() ? encode( items.get( items.size() - 1 ) ) : null;
+		return new CursorPage<>( items, next );
+	}
+
+	private void watch() {
+		while ( true ) {
+			WatchKey key;
+			try {
+				key = watcher.take();
+			} catch (InterruptedException | ClosedWatchServiceException e) {
+				return;
+			}
+			Path dir = (Path) key.watchable();
+			for ( WatchEvent<?> event : key.pollEvents() ) {
+				try {
+					if ( event.kind() == OVERFLOW ) {
+						rescan();
+					} else {
+						apply( dir, event.kind(), dir.resolve( (Path) event.context() ) );
+					}
+				} catch (IOException | UncheckedIOException e) {
+					LOGGER.warn( "Falha ao atualizar o índice de imagens em {}", dir, e );
+				}
+			}
+			key.reset();
+		}
+	}
+
+	private void apply(Path dir, WatchEvent.Kind<?> kind, Path path) throws IOException {
+		String name = path.getFileName().toString();
+		if ( kind == ENTRY_CREATE ) {
+			if ( !Files.isDirectory( path ) ) {
+				track( name );
+			} else if ( dir.equals( imageDir ) && ImageLayout.isShard( name ) ) {
+				path.register( watcher, ENTRY_CREATE, ENTRY_DELETE );
+				scan( path );
+			}
+		} else if ( !Files.exists( ImageLayout.resolve( imageDir, name ) ) && !Files.exists( imageDir.resolve( name ) ) ) {
+			// a migração cria o arquivo no subdiretório antes de apagar o da raiz
+			names.remove( name );
+		}
+	}
+
+	private void rescan() throws IOException {
+		NavigableSet<String> found = new ConcurrentSkipListSet<>();
+		try ( DirectoryStream<Path> entries = Files.newDirectoryStream( imageDir ) ) {
+			for ( Path entry : entries ) {
+				if ( !Files.isDirectory( entry ) ) {
+					found.add( entry.getFileName().toString() );
+				} else if ( ImageLayout.isShard( entry.getFileName().toString() ) ) {
+					try ( DirectoryStream<Path> files = Files.newDirectoryStream( entry ) ) {
+						files.forEach( file -> found.add( file.getFileName().toString() ) );
+					}
+				}
+			}
+		}
+		found.removeIf( ImageVariant::isVariant );
+		names.addAll( found );
+		names.retainAll( found );
+	}
+
+	private void scan(Path shard) throws IOException {
+		try ( DirectoryStream<Path> files = Files.newDirectoryStream( shard ) ) {
+			files.forEach( file -> track( file.getFileName().toString() ) );
+		}
+	}
+
+	private void track(String filename) {
+		if ( !ImageVariant.isVariant( filename ) ) {
+			names.add( filename );
+		}
+	}
+
+	private static String encode(String name) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString( name.getBytes( StandardCharsets.UTF_8 ) );
+	}
+
+	private static String decode(String cursor) {
+		try {
+			return new String( Base64.getUrlDecoder().decode( cursor ), StandardCharsets.UTF_8 );
+		} catch (IllegalArgumentException e) {
+			throw new ResponseStatusException( HttpStatus.BAD_REQUEST, "Cursor inválido" );
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package br.com.foods.teal.services;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Disposição das imagens no disco: cada arquivo fica em um subdiretório de
+ * {@code product-images} nomeado pelos dois primeiros dígitos hexadecimais do
+ * seu hash ({@code product-images/ab/ab12...png}), o que limita cada diretório
+ * a uma fração do total de imagens. Imagens guardadas pelo conteúdo usam o
+ * próprio nome; nomes antigos usam o SHA-256 do nome. As {@link ImageVariant
+ * versões reduzidas} ficam junto da original. As URLs continuam sem o
+ * subdiretório.
+ *
+ * @author Caio Pereira Leal
+ */
+public final class ImageLayout {
+
+	/**
+	 * Tamanho do nome dos subdiretórios
+	 */
+	public static final int SHARD_LENGTH = 2;
+
+	private ImageLayout() {
+	}
+
+	/**
+	 * Retorna o subdiretório da imagem
+	 *
+	 * @param filename
+	 * 			nome da imagem
+	 *
+	 * @return nome do subdiretório
+	 */
+	public static String shard(String filename) {
+		if ( ImageStorageService.CONTENT_ADDRESSED_NAME.matcher( filename ).matches()
+				|| ImageVariant.isVariant( filename ) ) {
+			return filename.substring( 0, SHARD_LENGTH );
+		}
+		try {
+			byte[] hash = MessageDigest.getInstance( "SHA-256" ).digest( filename.getBytes( StandardCharsets.UTF_8 ) );
+			return HexFormat.of().formatHex( hash, 0, 1 );
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException( e );
+		}
+	}
+
+	/**
+	 * Retorna o caminho da imagem dentro do diretório de imagens
+	 *
+	 * @param imageDir
+	 * 			diretório {@code product-images}
+	 * @param filename
+	 * 			nome da imagem
+	 *
+	 * @return caminho do arquivo
+	 */
+	public static Path resolve(Path imageDir, String filename) {
+		return imageDir.resolve( shard( filename ) ).resolve( filename );
+	}
+
+	/**
+	 * Informa se o diretório é um subdiretório da disposição
+	 *
+	 * @param name
+	 * 			nome do diretório
+	 *
+	 * @return true para subdiretórios de imagens
+	 */
+	public static boolean isShard(String name) {
+		return name.length() == SHARD_LENGTH && name.chars().allMatch( c -> Character.digit( c, 16 ) >= 0
+				&& !Character.isUpperCase( c ) );
+	}
+}
@@ -0,0 +1,345 @@
+package br.com.foods.teal.services;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Serviço que entrega as imagens dos produtos direto do disco, sem passar o
+ * conteúdo pela memória da aplicação: no Tomcat o arquivo é enviado por
+ * sendfile depois que a requisição termina e, nos demais casos, por
+ * {@link FileChannel#transferTo}. Tipo, tamanho, data e ETag de cada arquivo
+ * ficam em memória, e as respostas trazem validadores para que o navegador
+ * repita o download só quando a imagem mudar, com suporte a {@code Range}.
+ * Uma {@link ImageVariant versão reduzida} ainda não gerada é substituída pela
+ * original, sem cache no cliente, até ficar pronta. Quando a versão não pode
+ * ser gerada (nomes antigos, formatos sem escritor ou imagens recusadas) a
+ * original é entregue com o cache dos nomes antigos, que expira.
+ *
+ * @author Caio Pereira Leal
+ */
+@Service
+public class ImageServingService {
+
+	private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+
+	private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+
+	private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+
+	private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+	private static final String BYTES = "bytes";
+
+	/**
+	 * Imagens guardadas pelo conteúdo nunca mudam
+	 */
+	private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+
+	/**
+	 * Original entregue no lugar de uma versão que ainda vai ser gerada
+	 */
+	private static final String REVALIDATE = "no-cache";
+
+	private final Path imageDir;
+
+	private final String cacheControl;
+
+	private final long sendfileMinSize;
+
+	private final Cache<String, ImageFile> files;
+
+	private final ImageVariantService variants;
+
+	/**
+	 * Cria o serviço
+	 *
+	 * @param uploadDir
+	 * 			diretório de upload
+	 * @param maxAge
+	 * 			tempo que navegadores e proxies podem reutilizar uma imagem de nome antigo
+	 * 			(anterior ao armazenamento pelo conteúdo), ou a original no lugar de uma
+	 * 			versão que não pode ser gerada, sem revalidar
+	 * @param metadataTtl
+	 * 			tempo que os dados de um arquivo ficam em memória antes de serem lidos de novo do disco
+	 * @param maxFiles
+	 * 			quantidade máxima de arquivos com dados em memória
+	 * @param sendfileMinSize
+	 * 			tamanho a partir do qual o envio é delegado ao sendfile do Tomcat
+	 * @param variants
+	 * 			geração das versões reduzidas
+	 */
+	public ImageServingService(@Value("${app.upload.dir:${user.home}}") String uploadDir,
+			@Value("${app.images.max-age:1d}") Duration maxAge,
+			@Value("${app.images.metadata-ttl:30s}") Duration metadataTtl,
+			@Value("${app.images.metadata-max-files:10000}") long maxFiles,
+			@Value("${app.images.sendfile-min-size:48KB}") DataSize sendfileMinSize,
+			ImageVariantService variants) {
+		this.imageDir = Paths.get( uploadDir ).resolve( "product-images" ).toAbsolutePath().normalize();
+		this.cacheControl = "public, max-age=" + maxAge.toSeconds();
+		this.sendfileMinSize = sendfileMinSize.toBytes();
+		this.files = Caffeine.newBuilder().maximumSize( maxFiles ).expireAfterWrite( metadataTtl ).build();
+		this.variants = variants;
+	}
+
+	/**
+	 * Entrega a imagem. Responde 304 quando o cliente já tem a versão atual
+	 * ({@code If-None-Match} ou {@code If-Modified-Since}), 206 com o trecho
+	 * pedido em {@code Range} e 416 quando o trecho está fora do arquivo.
+	 * Pedidos com mais de um trecho recebem o arquivo inteiro.
+	 *
+	 * @param filename
+	 * 			nome do arquivo
+	 * @param size
+	 * 			versão reduzida ({@code thumb} ou {@code medium}) ou null para a original
+	 * @param request
+	 * 			requisição
+	 * @param response
+	 * 			resposta
+	 *
+	 * @throws IOException
+	 * 				Exceção ao enviar o arquivo
+	 * @throws ResponseStatusException
+	 * 				404 quando a imagem não existe e 400 para versões desconhecidas
+	 */
+	public void serve(String filename, String size, HttpServletRequest request, HttpServletResponse response)
+			throws IOException {
+		ImageVariant variant = size == null ? null : ImageVariant.fromParameter( size );
+		ImageFile image = variant == null ? null : files.get( variant.fileName( filename ), this::load );
+		boolean substitute = variant != null && image == null;
+		boolean pending = substitute && variants.canGenerate( filename );
+		if ( image == null ) {
+			image = files.get( filename, this::load );
+		}
+		if ( image == null ) {
+			throw new ResponseStatusException( HttpStatus.NOT_FOUND, "Imagem não encontrada: " + filename );
+		}
+		if ( pending ) {
+			variants.request( filename );
+		}
+		String cache = image.cacheControl();
+		if ( substitute ) {
+			cache = pending ? REVALIDATE : cacheControl;
+		}
+
+		response.setHeader( HttpHeaders.ETAG, image.etag() );
+		response.setDateHeader( HttpHeaders.LAST_MODIFIED, image.lastModified() );
+		response.setHeader( HttpHeaders.CACHE_CONTROL, cache );
+		response.setHeader( HttpHeaders.ACCEPT_RANGES, BYTES );
+
+		if ( notModified( image, request ) ) {
+			response.setStatus( HttpStatus.NOT_MODIFIED.value() );
+			return;
+		}
+
+		response.setContentType( image.contentType() );
+		String range = request.getHeader( HttpHeaders.RANGE );
+		if ( range == null || !rangeApplies( image, request.getHeader( HttpHeaders.IF_RANGE ) ) ) {
+			send( image, 0, image.size(), request, response );
+			return;
+		}
+
+		long[] bounds = parseRange( range, image.size() );
+		if ( bounds == null ) {
+			send( image, 0, image.size(), request, response );
+		} else if ( bounds.length == 0 ) {
+			response.setHeader( HttpHeaders.CONTENT_RANGE, BYTES + " */" + image.size() );
+			response.setStatus( HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value() );
+		} else {
+			response.setStatus( HttpStatus.PARTIAL_CONTENT.value() );
+			response.setHeader( HttpHeaders.CONTENT_RANGE,
+					BYTES + " " + bounds[0] + "-" + bounds[1] + "/" + image.size() );
+			send( image, bounds[0], bounds[1] - bounds[0] + 1, request, response );
+		}
+	}
+
+	private ImageFile load(String filename) {
+		Path path = ImageLayout.resolve( imageDir, filename ).normalize();
+		if ( !path.startsWith( imageDir ) ) {
+			return null;
+		}
+		if ( !Files.exists( path ) ) {
+			// imagem ainda não migrada para o subdiretório
+			path = imageDir.resolve( filename ).normalize();
+			if ( !path.startsWith( imageDir ) ) {
+				return null;
+			}
+		}
+		try {
+			BasicFileAttributes attributes = Files.readAttributes( path, BasicFileAttributes.class );
+			if ( !attributes.isRegularFile() ) {
+				return null;
+			}
+			long size = attributes.size();
+			long lastModified = attributes.lastModifiedTime().toMillis();
+			String contentType = MediaTypeFactory.getMediaType( filename )
+					.orElse( MediaType.APPLICATION_OCTET_STREAM ).toString();
+			if ( ImageStorageService.CONTENT_ADDRESSED_NAME.matcher( filename ).matches()
+					|| ImageVariant.isVariant( filename ) ) {
+				String stem = filename.indexOf( '.' ) < 0 ? filename : filename.substring( 0, filename.indexOf( '.' ) );
+				return new ImageFile( path, contentType, size, lastModified, "\"" + stem + "\"", IMMUTABLE );
+			}
+			String etag = "\"" + Long.toHexString( lastModified ) + "-" + Long.toHexString( size ) + "\"";
+			return new ImageFile( path, contentType, size, lastModified, etag, cacheControl );
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException e) {
+			throw new ResponseStatusException( HttpStatus.INTERNAL_SERVER_ERROR, "Erro ao carregar imagem: " + filename );
+		}
+	}
+
+	private static boolean notModified(ImageFile image, HttpServletRequest request) {
+		String ifNoneMatch = request.getHeader( HttpHeaders.IF_NONE_MATCH );
+		if ( ifNoneMatch != null ) {
+			for ( String tag : ifNoneMatch.split( "," ) ) {
+				String value = tag.trim();
+				if ( value.startsWith( "W/" ) ) {
+					value = value.substring( 2 );
+				}
+				if ( value.equals( "*" ) || value.equals( image.etag() ) ) {
+					return true;
+				}
+			}
+			return false;
+		}
+		long ifModifiedSince = dateHeader( request, HttpHeaders.IF_MODIFIED_SINCE );
+		return ifModifiedSince >= 0 && image.lastModified() / 1000 <= ifModifiedSince / 1000;
+	}
+
+	/**
+	 * {@code If-Range} só aceita a comparação forte: a ETag exata ou a data
+	 * exata da última modificação
+	 */
+	private static boolean rangeApplies(ImageFile image, String ifRange) {
+		if ( ifRange == null ) {
+			return true;
+		}
+		String value = ifRange.trim();
+		if ( value.startsWith( "\"" ) || value.startsWith( "W/" ) ) {
+			return value.equals( image.etag() );
+		}
+		try {
+			return ZonedDateTime.parse( value, DateTimeFormatter.RFC_1123_DATE_TIME ).toEpochSecond()
+					== image.lastModified() / 1000;
+		} catch (DateTimeParseException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Interpreta um único trecho {@code bytes=início-fim}, {@code bytes=início-}
+	 * ou {@code bytes=-sufixo}
+	 *
+	 * @return início e fim inclusivos, vazio quando o trecho está fora do
+	 * 			arquivo ou null quando o cabeçalho deve ser ignorado
+	 */
+	private static long[] parseRange(String range, long size) {
+		if ( !range.startsWith( BYTES + "=" ) || range.indexOf( ',' ) >= 0 ) {
+			return null;
+		}
+		String spec = range.substring( BYTES.length() + 1 ).trim();
+		int dash = spec.indexOf( '-' );
+		if ( dash < 0 ) {
+			return null;
+		}
+		try {
+			String first = spec.substring( 0, dash ).trim();
+			String last = spec.substring( dash + 1 ).trim();
+			if ( first.isEmpty() ) {
+				long suffix = Long.parseLong( last );
+				if ( suffix < 0 ) {
+					return null;
+				}
+				return suffix == 0 || size == 0 ? new long[0]
+						: new long[] { Math.max( 0, size - suffix ), size - 1 };
+			}
+			long start = Long.parseLong( first );
+			long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong( last );
+			if ( start < 0 || end < start ) {
+				return null;
+			}
+			return start >= size ? new long[0] : new long[] { start, Math.min( end, size - 1 ) };
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	private void send(ImageFile image, long start, long length, HttpServletRequest request,
+			HttpServletResponse response) throws IOException {
+		response.setContentLengthLong( length );
+		if ( HttpMethod.HEAD.matches( request.getMethod() ) || length == 0 ) {
+			return;
+		}
+		if ( length >= sendfileMinSize && Boolean.TRUE.equals( request.getAttribute( SENDFILE_SUPPORT ) ) ) {
+			request.setAttribute( SENDFILE_FILENAME, image.path().toString() );
+			request.setAttribute( SENDFILE_START, start );
+			request.setAttribute( SENDFILE_END, start + length );
+			return;
+		}
+		try ( FileChannel channel = FileChannel.open( image.path(), StandardOpenOption.READ ) ) {
+			WritableByteChannel out = Channels.newChannel( response.getOutputStream() );
+			long position = start;
+			long end = start + length;
+			while ( position < end ) {
+				long sent = channel.transferTo( position, end - position, out );
+				if ( sent <= 0 ) {
+					break;
+				}
+				position += sent;
+			}
+		} catch (NoSuchFileException e) {
+			files.invalidate( image.path().getFileName().toString() );
+			throw new ResponseStatusException( HttpStatus.NOT_FOUND, "Imagem não encontrada: "
+					+ image.path().getFileName() );
+		}
+	}
+
+	private static long dateHeader(HttpServletRequest request, String name) {
+		try {
+			return request.getDateHeader( name );
+		} catch (IllegalArgumentException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Dados de um arquivo de imagem guardados em memória
+	 *
+	 * @param path caminho do arquivo
+	 * @param contentType tipo do conteúdo
+	 * @param size tamanho em bytes
+	 * @param lastModified data da última modificação em milissegundos
+	 * @param etag ETag forte: o hash do conteúdo (com a versão) ou, nos nomes antigos, a data e o tamanho
+	 * @param cacheControl cabeçalho {@code Cache-Control} da imagem
+	 */
+	private record ImageFile(Path path, String contentType, long size, long lastModified, String etag,
+			String cacheControl) {
+	}
+}
@@ -1,57 +1,350 @@
 package br.com.foods.teal.services;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import br.com.foods.teal.repository.ProductRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
 /**
- * Serviço para imahens do produto
- * 
+ * Serviço para imahens do produto. Cada imagem é guardada pelo SHA-256 do
+ * seu conteúdo ({@code <hash>.<extensão>}): imagens iguais ocupam um único
+ * arquivo e um nome nunca muda de conteúdo, então as URLs podem ficar em
+ * cache para sempre. O arquivo fica no subdiretório da {@link ImageLayout
+ * disposição} e as {@link ImageVariant versões reduzidas} são geradas em
+ * segundo plano pelo {@link ImageVariantService}.
+ *
+ * As imagens de uma requisição são gravadas em paralelo por um pool limitado,
+ * antes de abrir a transação do produto, para que a conexão com o banco não
+ * fique presa esperando o disco. O tempo de gravação é publicado em
+ * {@code teal.product.images.store}, para comparar com o tempo de uso das
+ * conexões em {@code hikaricp.connections.usage}.
+ *
+ * Duas requisições com a mesma imagem compartilham o arquivo. Cada imagem
+ * gravada fica reservada até a requisição {@link #confirm confirmar} ou
+ * {@link #discard descartar}, e o descarte só apaga o arquivo quando nenhuma
+ * outra requisição o reservou e nenhum produto gravado o usa.
+ *
  * @author Caio Pereira Leal
  */
 @Service
 public class ImageStorageService {
 
+    /**
+     * Nome de uma imagem guardada pelo conteúdo
+     */
+    public static final Pattern CONTENT_ADDRESSED_NAME = Pattern.compile("[0-9a-f]{64}(\\.[a-z0-9]{1,10})?");
+
+    private static final Pattern EXTENSION = Pattern.compile("\\.[A-Za-z0-9]{1,10}$");
+
     @Value("${app.upload.dir:${user.home}}")
     private String uploadDir;
 
+    @Value("${app.images.upload.workers:4}")
+    private int workers;
+
+    @Value("${app.images.upload.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Autowired
+    private ImageDirectoryIndex imageDirectoryIndex;
+
+    @Autowired
+    private ImageVariantService imageVariantService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    /**
+     * Quantidade de requisições em andamento com cada imagem
+     */
+    private final ConcurrentHashMap<String, Integer> holders = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor executor;
+
+    private Timer storeTimer;
+
+    /**
+     * Cria o pool de gravação. Com a fila cheia a própria thread da
+     * requisição grava a imagem.
+     */
+    @PostConstruct
+    void initExecutor() {
+        AtomicInteger threads = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "image-uploads-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        new ExecutorServiceMetrics(executor, "image-uploads", Set.of()).bindTo(meterRegistry);
+        storeTimer = Timer.builder("teal.product.images.store")
+                .description("Tempo de gravação das imagens de uma requisição")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Para o pool de gravação
+     */
+    @PreDestroy
+    void stopExecutor() {
+        executor.shutdown();
+    }
+
     /**
-     * Retorna lista de imagens do armazenamento
-     * 
+     * Grava as imagens em paralelo e aguarda todas. O conteúdo é copiado para
+     * um arquivo temporário calculando o hash na mesma leitura e depois
+     * movido de forma atômica para o nome final, ou descartado se a imagem já
+     * existir. Se alguma gravação falhar, as imagens criadas por esta chamada
+     * são apagadas.
+     *
      * @param imageFiles
      * 				lista de arquivos de imagem
-     * 
-     * @return arquivo com nome
+     *
+     * @return imagens gravadas, a serem {@link #confirm confirmadas} ou
+     * 				{@link #discard descartadas} após a escrita do produto
      */
-    public List<String> storeImages(List<MultipartFile> imageFiles) {
-        List<String> fileNames = new ArrayList<>();
-        
-        try {
+    public StoredImages storeImages(List<MultipartFile> imageFiles) {
+        return storeTimer.record(() -> {
             Path uploadPath = Paths.get(uploadDir + "/product-images");
-            if (!Files.exists(uploadPath)) {
+            Path incomingPath = Paths.get(uploadDir + "/.incoming");
+            try {
                 Files.createDirectories(uploadPath);
+                Files.createDirectories(incomingPath);
+            } catch (IOException e) {
+                throw new RuntimeException("Falha ao armazenar imagens", e);
             }
 
+            List<CompletableFuture<StoredImage>> writes = new ArrayList<>();
             for (MultipartFile file : imageFiles) {
                 if (file.isEmpty()) continue;
-                
-                String fileName = file.getOriginalFilename();
-                Path filePath = uploadPath.resolve(fileName);
-                Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-                fileNames.add("/product-images/" + fileName);
+
+                writes.add(CompletableFuture.supplyAsync(() -> store(file, uploadPath, incomingPath), executor));
+            }
+
+            List<String> fileNames = new ArrayList<>();
+            List<String> created = new ArrayList<>();
+            RuntimeException failure = null;
+            for (CompletableFuture<StoredImage> write : writes) {
+                try {
+                    StoredImage image = write.join();
+                    fileNames.add(image.fileName());
+                    if (image.created()) {
+                        created.add(image.fileName());
+                    }
+                } catch (CompletionException e) {
+                    if (failure == null) {
+                        failure = new RuntimeException("Falha ao armazenar imagens", e.getCause());
+                    }
+                }
+            }
+
+            StoredImages stored = new StoredImages(fileNames, created);
+            if (failure != null) {
+                try {
+                    discard(stored);
+                } catch (RuntimeException e) {
+                    failure.addSuppressed(e);
+                }
+                throw failure;
+            }
+            return stored;
+        });
+    }
+
+    /**
+     * Libera as imagens de um produto já gravado e pede as versões reduzidas
+     *
+     * @param stored
+     * 				imagens gravadas
+     */
+    public void confirm(StoredImages stored) {
+        stored.fileNames().forEach(fileName -> holders.computeIfPresent(fileName,
+                (name, count) -> count == 1 ? null : count - 1));
+        stored.fileNames().forEach(imageVariantService::request);
+    }
+
+    /**
+     * Libera as imagens quando a escrita do produto falha e apaga as criadas
+     * pela gravação. Imagens que já existiam não são apagadas, assim como as
+     * criadas aqui mas já reservadas por outra requisição ou usadas por um
+     * produto gravado: duas gravações simultâneas do mesmo conteúdo podem
+     * ambas criar o arquivo. Uma falha ao apagar uma imagem não impede as
+     * demais e é lançada ao final.
+     *
+     * @param stored
+     * 				imagens gravadas
+     */
+    public void discard(StoredImages stored) {
+        Path uploadPath = Paths.get(uploadDir + "/product-images");
+        Path incomingPath = Paths.get(uploadDir + "/.incoming");
+        List<String> remaining = new ArrayList<>(stored.created());
+        List<String> released = new ArrayList<>();
+        for (String fileName : stored.fileNames()) {
+            Integer left = holders.compute(fileName, (name, count) -> count == null || count == 1 ? null : count - 1);
+            if (left == null && remaining.remove(fileName)) {
+                released.add(fileName);
+            }
+        }
+
+        RuntimeException failure = null;
+        for (String fileName : released) {
+            try {
+                deleteUnused(uploadPath, incomingPath, fileName);
+            } catch (IOException | RuntimeException e) {
+                if (failure == null) {
+                    failure = new RuntimeException("Falha ao descartar imagens", e);
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Apaga a imagem se nenhum produto gravado a usa. O arquivo é tirado do
+     * lugar antes de conferir as reservas: uma gravação que reservar a imagem
+     * depois disso não o encontra e grava de novo, e uma que reservou antes
+     * faz o arquivo voltar (com o mesmo conteúdo, caso ela já o tenha gravado).
+     */
+    private void deleteUnused(Path uploadPath, Path incomingPath, String fileName) throws IOException {
+        if (productRepository.existsImage("/product-images/" + fileName)) {
+            return;
+        }
+        Path filePath = ImageLayout.resolve(uploadPath, fileName);
+        Path aside = incomingPath.resolve("discard-" + UUID.randomUUID() + ".tmp");
+        try {
+            Files.move(filePath, aside, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        imageDirectoryIndex.remove(fileName);
+        try {
+            if (holders.containsKey(fileName)) {
+                Files.move(aside, filePath, StandardCopyOption.ATOMIC_MOVE);
+                imageDirectoryIndex.add(fileName);
+            }
+        } finally {
+            Files.deleteIfExists(aside);
+        }
+    }
+
+    private StoredImage store(MultipartFile file, Path uploadPath, Path incomingPath) {
+        try {
+            Path temp = Files.createTempFile(incomingPath, "upload-", ".tmp");
+            try {
+                MessageDigest digest = sha256();
+                try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                    Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+                }
+
+                String fileName = HexFormat.of().formatHex(digest.digest()) + extension(file.getOriginalFilename());
+                Path filePath = ImageLayout.resolve(uploadPath, fileName);
+                // reservada antes de conferir o arquivo, para que um descarte em andamento não o apague depois
+                holders.merge(fileName, 1, Integer::sum);
+                boolean created = false;
+                try {
+                    if (!Files.exists(filePath)) {
+                        Files.createDirectories(filePath.getParent());
+                        try {
+                            Files.move(temp, filePath, StandardCopyOption.ATOMIC_MOVE);
+                            created = true;
+                        } catch (FileAlreadyExistsException e) {
+                            // outra requisição guardou a mesma imagem ao mesmo tempo
+                        }
+                    }
+                } catch (IOException | RuntimeException e) {
+                    holders.computeIfPresent(fileName, (name, count) -> count == 1 ? null : count - 1);
+                    throw e;
+                }
+                imageDirectoryIndex.add(fileName);
+                return new StoredImage(fileName, created);
+            } finally {
+                Files.deleteIfExists(temp);
             }
         } catch (IOException e) {
-            throw new RuntimeException("Falha ao armazenar imagens", e);
+            throw new CompletionException(e);
+        }
+    }
+
+    private static String extension(String originalFilename) {
+        if (originalFilename == null) {
+            return "";
+        }
+        var matcher = EXTENSION.matcher(originalFilename);
+        return matcher.find() ? matcher.group().toLowerCase(Locale.ROOT) : "";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record StoredImage(String fileName, boolean created) {
+    }
+
+    /**
+     * Imagens gravadas em uma requisição
+     *
+     * @param fileNames nomes das imagens, na ordem recebida
+     * @param created nomes das imagens que não existiam antes desta gravação
+     */
+    public record StoredImages(List<String> fileNames, List<String> created) {
+
+        /**
+         * Nenhuma imagem
+         */
+        public static final StoredImages EMPTY = new StoredImages(List.of(), List.of());
+
+        /**
+         * URLs das imagens
+         *
+         * @return URLs
+         */
+        public List<String> urls() {
+            return fileNames.stream().map(fileName -> "/product-images/" + fileName).toList();
         }
-        
-        return fileNames;
     }
 }
@@ -0,0 +1,108 @@
+package br.com.foods.teal.services;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Versões reduzidas geradas para cada imagem guardada pelo conteúdo. Cada
+ * versão cabe em um quadrado do tamanho indicado, mantendo a proporção, e é
+ * guardada ao lado da original como {@code <hash>_<versão>.<extensão>}.
+ *
+ * @author Caio Pereira Leal
+ */
+public enum ImageVariant {
+
+	/**
+	 * Miniatura das listagens
+	 */
+	THUMB(200),
+
+	/**
+	 * Imagem da página do produto
+	 */
+	MEDIUM(800);
+
+	private static final Pattern VARIANT_NAME = Pattern.compile( "([0-9a-f]{64})_(thumb|medium)(\\.[a-z0-9]{1,10})?" );
+
+	private final int maxSide;
+
+	ImageVariant(int maxSide) {
+		this.maxSide = maxSide;
+	}
+
+	/**
+	 * Retorna o maior lado da versão em pixels
+	 *
+	 * @return tamanho
+	 */
+	public int maxSide() {
+		return maxSide;
+	}
+
+	/**
+	 * Nome do arquivo da versão
+	 *
+	 * @param original
+	 * 			nome da imagem original, guardada pelo conteúdo
+	 *
+	 * @return nome da versão
+	 */
+	public String fileName(String original) {
+		int dot = original.indexOf( '.' );
+		String stem = dot < 0 ? original : original.substring( 0, dot );
+		String extension = dot < 0 ? "" : original.substring( dot );
+		return stem + "_" + name().toLowerCase( Locale.ROOT ) + extension;
+	}
+
+	/**
+	 * Interpreta o parâmetro {@code size} da entrega de imagens
+	 *
+	 * @param size
+	 * 			{@code thumb} ou {@code medium}
+	 *
+	 * @return versão
+	 *
+	 * @throws ResponseStatusException
+	 * 				400 para versões desconhecidas
+	 */
+	public static ImageVariant fromParameter(String size) {
+		for ( ImageVariant variant : values() ) {
+			if ( variant.name().equalsIgnoreCase( size ) ) {
+				return variant;
+			}
+		}
+		throw new ResponseStatusException( HttpStatus.BAD_REQUEST, "Tamanho de imagem inválido: " + size );
+	}
+
+	/**
+	 * Informa se o arquivo é uma versão gerada, e não uma imagem enviada
+	 *
+	 * @param filename
+	 * 			nome do arquivo
+	 *
+	 * @return true para versões
+	 */
+	public static boolean isVariant(String filename) {
+		return VARIANT_NAME.matcher( filename ).matches();
+	}
+
+	/**
+	 * Nome da imagem original de uma versão
+	 *
+	 * @param filename
+	 * 			nome do arquivo
+	 *
+	 * @return nome da original, ou o próprio nome se não for uma versão
+	 */
+	public static String originalOf(String filename) {
+		Matcher matcher = VARIANT_NAME.matcher( filename );
+		if ( !matcher.matches() ) {
+			return filename;
+		}
+		return matcher.group( 1 ) + ( matcher.group( 3 ) == null ? "" : matcher.group( 3 ) );
+	}
+}
@@ -0,0 +1,319 @@
+package br.com.foods.teal.services;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Gera as {@link ImageVariant versões reduzidas} das imagens em segundo plano,
+ * fora da thread da requisição. O pool tem quantidade fixa de threads e fila
+ * limitada, porque decodificar uma foto de 10MB ocupa dezenas de MB de
+ * memória; quando a fila está cheia o pedido é descartado e a versão é pedida
+ * de novo na próxima vez que for buscada.
+ *
+ * As dimensões são lidas do cabeçalho antes de decodificar a imagem: acima de
+ * {@code app.images.variants.max-pixels} ela é recusada, e imagens grandes são
+ * decodificadas por amostragem, de modo que um arquivo pequeno que declara
+ * dimensões enormes não esgota a memória. Imagens recusadas, em formato não
+ * suportado ou que falharam em {@code app.images.variants.max-attempts}
+ * gerações seguidas (corrompidas, em um modelo de cor sem leitor) ficam sem
+ * versões até a aplicação reiniciar.
+ *
+ * As versões são contadas na métrica {@code teal.image.variants}, com a tag
+ * {@code result} igual a {@code generated}, {@code unsupported},
+ * {@code too-large}, {@code failed} ou {@code rejected}; o pool é publicado
+ * como {@code image-variants}.
+ *
+ * @author Caio Pereira Leal
+ */
+@Service
+public class ImageVariantService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger( ImageVariantService.class );
+
+	private static final Set<String> WRITABLE = Set.of( "png", "jpg", "jpeg", "gif", "bmp" );
+
+	private static final int LARGEST_SIDE = Arrays.stream( ImageVariant.values() ).mapToInt( ImageVariant::maxSide ).max()
+			.orElseThrow();
+
+	private final Path imageDir;
+
+	private final Path incomingDir;
+
+	private final long maxPixels;
+
+	private final int maxAttempts;
+
+	private final ThreadPoolExecutor executor;
+
+	private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+	private final Set<String> unavailable = ConcurrentHashMap.newKeySet();
+
+	private final Map<String, Integer> failures = new ConcurrentHashMap<>();
+
+	private final Counter generated;
+
+	private final Counter unsupported;
+
+	private final Counter tooLarge;
+
+	private final Counter failed;
+
+	private final Counter rejected;
+
+	/**
+	 * Cria o serviço
+	 *
+	 * @param uploadDir
+	 * 			diretório de upload
+	 * @param workers
+	 * 			threads que geram as versões
+	 * @param queueCapacity
+	 * 			imagens aguardando na fila
+	 * @param maxPixels
+	 * 			largura vezes altura máxima de uma imagem decodificada
+	 * @param maxAttempts
+	 * 			falhas seguidas de geração antes de desistir da imagem
+	 * @param meterRegistry
+	 * 			registro de métricas
+	 */
+	public ImageVariantService(@Value("${app.upload.dir:${user.home}}") String uploadDir,
+			@Value("${app.images.variants.workers:2}") int workers,
+			@Value("${app.images.variants.queue-capacity:1000}") int queueCapacity,
+			@Value("${app.images.variants.max-pixels:50000000}") long maxPixels,
+			@Value("${app.images.variants.max-attempts:3}") int maxAttempts,
+			MeterRegistry meterRegistry) {
+		this.imageDir = Paths.get( uploadDir ).resolve( "product-images" ).toAbsolutePath().normalize();
+		this.incomingDir = Paths.get( uploadDir ).resolve( ".incoming" ).toAbsolutePath().normalize();
+		this.maxPixels = maxPixels;
+		this.maxAttempts = maxAttempts;
+		AtomicInteger threads = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor( workers, workers, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>( queueCapacity ), runnable -> {
+					Thread thread = new Thread( runnable, "image-variants-" + threads.incrementAndGet() );
+					thread.setDaemon( true );
+					return thread;
+				} );
+		new ExecutorServiceMetrics( executor, "image-variants", Set.of() ).bindTo( meterRegistry );
+		this.generated = counter( "generated", meterRegistry );
+		this.unsupported = counter( "unsupported", meterRegistry );
+		this.tooLarge = counter( "too-large", meterRegistry );
+		this.failed = counter( "failed", meterRegistry );
+		this.rejected = counter( "rejected", meterRegistry );
+	}
+
+	/**
+	 * Para as threads, descartando o que estiver na fila
+	 */
+	@PreDestroy
+	void stop() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Informa se a imagem pode ter versões reduzidas: guardada pelo conteúdo,
+	 * em formato com escritor e não recusada nem desistida em uma geração
+	 * anterior
+	 *
+	 * @param filename
+	 * 			nome da imagem original
+	 *
+	 * @return true quando as versões existem ou ainda podem ser geradas
+	 */
+	public boolean canGenerate(String filename) {
+		return ImageStorageService.CONTENT_ADDRESSED_NAME.matcher( filename ).matches()
+				&& WRITABLE.contains( format( filename ) ) && !unavailable.contains( filename );
+	}
+
+	/**
+	 * Pede a geração das versões que ainda não existem. Retorna sem esperar;
+	 * pedidos repetidos da mesma imagem enquanto ela está na fila são
+	 * ignorados.
+	 *
+	 * @param filename
+	 * 			nome da imagem original, guardada pelo conteúdo
+	 */
+	public void request(String filename) {
+		if ( !canGenerate( filename ) || !pending.add( filename ) ) {
+			return;
+		}
+		try {
+			executor.execute( () -> {
+				try {
+					generate( filename );
+				} finally {
+					pending.remove( filename );
+				}
+			} );
+		} catch (RejectedExecutionException e) {
+			pending.remove( filename );
+			rejected.increment();
+		}
+	}
+
+	private void generate(String filename) {
+		Path original = ImageLayout.resolve( imageDir, filename );
+		try {
+			if ( allExist( filename ) ) {
+				return;
+			}
+			BufferedImage source = read( original, filename );
+			if ( source == null ) {
+				return;
+			}
+			String format = format( filename );
+			for ( ImageVariant variant : ImageVariant.values() ) {
+				Path target = ImageLayout.resolve( imageDir, variant.fileName( filename ) );
+				if ( !Files.exists( target ) ) {
+					write( resize( source, variant.maxSide(), format ), format, target );
+				}
+			}
+			generated.increment();
+			failures.remove( filename );
+		} catch (IOException | RuntimeException e) {
+			failed.increment();
+			LOGGER.warn( "Falha ao gerar as versões da imagem {}", filename, e );
+			if ( failures.merge( filename, 1, Integer::sum ) >= maxAttempts ) {
+				failures.remove( filename );
+				unavailable.add( filename );
+				LOGGER.warn( "Imagem {} fica sem versões reduzidas após {} falhas", filename, maxAttempts );
+			}
+		}
+	}
+
+	/**
+	 * Decodifica a imagem depois de conferir as dimensões no cabeçalho.
+	 * Imagens com mais que o dobro do lado da maior versão são lidas pulando
+	 * linhas e colunas, e a memória usada passa a depender do tamanho das
+	 * versões, não do original.
+	 *
+	 * @return imagem ou null quando ela foi recusada
+	 */
+	private BufferedImage read(Path original, String filename) throws IOException {
+		try ( ImageInputStream input = ImageIO.createImageInputStream( original.toFile() ) ) {
+			Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders( input );
+			if ( readers == null || !readers.hasNext() ) {
+				refuse( filename, unsupported );
+				return null;
+			}
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput( input, true, true );
+				int width = reader.getWidth( 0 );
+				int height = reader.getHeight( 0 );
+				if ( (long) width * height > maxPixels ) {
+					LOGGER.warn( "Imagem {} com {}x{} pixels acima do limite de {}", filename, width, height, maxPixels );
+					refuse( filename, tooLarge );
+					return null;
+				}
+				ImageReadParam param = reader.getDefaultReadParam();
+				int step = Math.max( 1, Math.max( width, height ) / ( 2 * LARGEST_SIDE ) );
+				param.setSourceSubsampling( step, step, 0, 0 );
+				return reader.read( 0, param );
+			} finally {
+				reader.dispose();
+			}
+		}
+	}
+
+	private void refuse(String filename, Counter counter) {
+		unavailable.add( filename );
+		counter.increment();
+	}
+
+	private boolean allExist(String filename) {
+		for ( ImageVariant variant : ImageVariant.values() ) {
+			if ( !Files.exists( ImageLayout.resolve( imageDir, variant.fileName( filename ) ) ) ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Reduz em etapas de no máximo metade do tamanho, o que mantém a qualidade
+	 * da interpolação bilinear em reduções grandes
+	 */
+	private static BufferedImage resize(BufferedImage source, int maxSide, String format) {
+		double scale = Math.min( 1.0, (double) maxSide / Math.max( source.getWidth(), source.getHeight() ) );
+		int width = Math.max( 1, (int) Math.round( source.getWidth() * scale ) );
+		int height = Math.max( 1, (int) Math.round( source.getHeight() * scale ) );
+		int type = format.startsWith( "jp" ) || format.equals( "bmp" ) ? BufferedImage.TYPE_INT_RGB
+				: BufferedImage.TYPE_INT_ARGB;
+
+		BufferedImage current = source;
+		do {
+			int stepWidth = Math.max( width, current.getWidth() / 2 );
+			int stepHeight = Math.max( height, current.getHeight() / 2 );
+			BufferedImage step = new BufferedImage( stepWidth, stepHeight, type );
+			Graphics2D graphics = step.createGraphics();
+			try {
+				graphics.setRenderingHint( RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR );
+				graphics.setRenderingHint( RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY );
+				graphics.drawImage( current, 0, 0, stepWidth, stepHeight, null );
+			} finally {
+				graphics.dispose();
+			}
+			current = step;
+		} while ( current.getWidth() != width || current.getHeight() != height );
+		return current;
+	}
+
+	private void write(BufferedImage image, String format, Path target) throws IOException {
+		Files.createDirectories( incomingDir );
+		Files.createDirectories( target.getParent() );
+		Path temp = Files.createTempFile( incomingDir, "variant-", ".tmp" );
+		try {
+			if ( !ImageIO.write( image, format, temp.toFile() ) ) {
+				throw new IOException( "Formato sem escritor: " + format );
+			}
+			Files.move( temp, target, StandardCopyOption.ATOMIC_MOVE );
+		} finally {
+			Files.deleteIfExists( temp );
+		}
+	}
+
+	private static String format(String filename) {
+		int dot = filename.lastIndexOf( '.' );
+		return dot < 0 ? "" : filename.substring( dot + 1 ).toLowerCase( Locale.ROOT );
+	}
+
+	private static Counter counter(String result, MeterRegistry meterRegistry) {
+		return Counter.builder( "teal.image.variants" )
+				.description( "Imagens processadas pela geração de versões reduzidas" )
+				.tag( "result", result )
+				.register( meterRegistry );
+	}
+}
@@ -0,0 +1,105 @@
+package br.com.foods.teal.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import br.com.foods.teal.dto.ProductRow;
+import br.com.foods.teal.repository.ProductRepository;
+import br.com.foods.teal.search.ProductIndex;
+
+/**
+ * Serviço que mantém os índices em memória de produto ({@link ProductIndex})
+ * alinhados com o banco: reconstrói todos na inicialização e repassa cada
+ * escrita de produto após o commit
+ *
+ * A reconstrução é montada em índices novos enquanto os atuais continuam
+ * respondendo. As escritas que chegam nesse meio tempo vão para os índices
+ * atuais e são guardadas para serem repetidas nos novos antes da troca, de
+ * modo que uma linha antiga lida no fluxo não desfaça uma gravação ou
+ * remoção mais recente.
+ * 
+ * @author Caio Pereira Leal
+ */
+@Service
+public class ProductIndexService {
+
+	@Autowired
+	private ProductRepository repository;
+
+	@Autowired
+	private List<ProductIndex> indexes;
+
+	/**
+	 * Escritas recebidas durante a reconstrução em andamento, ou {@code null}
+	 * fora dela. Protegida por {@link #writes}.
+	 */
+	private List<Consumer<ProductIndex>> pending;
+
+	private final Object writes = new Object();
+
+	/**
+	 * Reconstrói todos os índices lendo o catálogo em fluxo e os troca pelos
+	 * atuais ao final
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	@Transactional(readOnly = true)
+	public synchronized void rebuild() {
+		List<Consumer<ProductIndex>> received = new ArrayList<>();
+		synchronized ( writes ) {
+			pending = received;
+		}
+		try {
+			List<ProductIndex> rebuilt = indexes.stream().map( ProductIndex::empty ).toList();
+			try ( Stream<ProductRow> rows = repository.streamCatalog() ) {
+				rows.forEach( row -> rebuilt.forEach( index -> index.add( row ) ) );
+			}
+			synchronized ( writes ) {
+				received.forEach( rebuilt::forEach );
+				for ( int i = 0; i < indexes.size(); i++ ) {
+					indexes.get( i ).replaceWith( rebuilt.get( i ) );
+				}
+			}
+		} finally {
+			synchronized ( writes ) {
+				pending = null;
+			}
+		}
+	}
+
+	/**
+	 * Inclui ou atualiza o produto nos índices após o commit
+	 * 
+	 * @param product
+	 * 			colunas do produto gravado
+	 */
+	public void indexAfterCommit(ProductRow product) {
+		AfterCommit.run( () -> apply( index -> index.add( product ) ) );
+	}
+
+	/**
+	 * Remove o produto dos índices após o commit
+	 * 
+	 * @param productId
+	 * 			identificador do produto removido
+	 */
+	public void removeAfterCommit(Long productId) {
+		AfterCommit.run( () -> apply( index -> index.remove( productId ) ) );
+	}
+
+	private void apply(Consumer<ProductIndex> write) {
+		synchronized ( writes ) {
+			indexes.forEach( write );
+			if ( pending != null ) {
+				pending.add( write );
+			}
+		}
+	}
+}
@@ -1,28 +1,55 @@
 package br.com.foods.teal.services;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
-import org.springframework.http.HttpHeaders;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.foods.teal.dto.ProductBatchDTO;
 import br.com.foods.teal.dto.ProductDTO;
+import br.com.foods.teal.dto.ProductFields;
+import br.com.foods.teal.dto.ProductFilter;
+import br.com.foods.teal.dto.ProductFilterDTO;
+import br.com.foods.teal.dto.ProductImageRow;
+import br.com.foods.teal.dto.ProductRow;
+import br.com.foods.teal.model.Category;
 import br.com.foods.teal.model.Product;
 import br.com.foods.teal.model.User;
+import br.com.foods.teal.pagination.CursorPage;
+import br.com.foods.teal.pagination.KeysetCursor;
 import br.com.foods.teal.repository.ProductRepository;
+import br.com.foods.teal.repository.ProductSpecifications;
 import br.com.foods.teal.repository.UserRepository;
+import br.com.foods.teal.search.FuzzyResult;
+import br.com.foods.teal.search.PriceBand;
+import br.com.foods.teal.search.ProductFacetIndex;
+import br.com.foods.teal.search.ProductFuzzyIndex;
+import br.com.foods.teal.search.ProductSearchIndex;
+import br.com.foods.teal.search.ProductSuggestIndex;
+import br.com.foods.teal.search.SearchHit;
+import br.com.foods.teal.search.SearchResults;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 
 /**
  * Serviço para Produto
@@ -32,26 +59,115 @@ import br.com.foods.teal.repository.UserRepository;
 @Service
 public class ProductService {
 	
+	private static final Map<String, Function<String, Object>> SORT_KEYS = Map.of(
+			"id", Long::valueOf,
+			"createDate", LocalDateTime::parse,
+			"price", Double::valueOf );
+	
 	@Autowired
 	private ProductRepository repository;
 	
 	@Autowired
 	private UserRepository userRepository;
 	
-	@Value("${app.upload.dir:${user.home}}")
-	private String uploadDir;
+	@Autowired
+	private ObjectMapper objectMapper;
+	
+	@Autowired
+	private CatalogCacheService catalogCache;
+	
+	@Autowired
+	private ProductIndexService indexService;
+	
+	@Autowired
+	private ProductSearchIndex searchIndex;
+	
+	@Autowired
+	private ProductSuggestIndex suggestIndex;
+	
+	@Autowired
+	private ProductFuzzyIndex fuzzyIndex;
+	
+	@Autowired
+	private ProductFacetIndex facetIndex;
+	
+	@Autowired
+	private MeterRegistry meterRegistry;
+	
+	@Autowired
+	private ImageDirectoryIndex imageDirectoryIndex;
+	
+	private SingleFlight<Long, ProductDTO> productLookups;
+	
+	private SingleFlight<Long, List<String>> imageLookups;
+	
+	@Value("${app.pagination.default-size:50}")
+	private int defaultPageSize;
+	
+	@Value("${app.pagination.max-size:500}")
+	private int maxPageSize;
+	
+	@Value("${app.search.default-size:20}")
+	private int defaultSearchSize;
+	
+	@Value("${app.export.batch-size:" + ProductRepository.EXPORT_FETCH_SIZE + "}")
+	private int exportBatchSize;
+	
+	@PostConstruct
+	void initLookups() {
+		productLookups = new SingleFlight<>( "product", meterRegistry );
+		imageLookups = new SingleFlight<>( "product-images", meterRegistry );
+	}
 	
 	/**
-	 * Retorna todos os produtos salvos
+	 * Retorna uma página dos produtos salvos
 	 * 
-	 * @return produtos
+	 * @param cursor
+	 * 			cursor da página anterior ou null para a primeira página
+	 * @param size
+	 * 			tamanho da página
+	 * @param sort
+	 * 			ordenação ({@code id}, {@code createDate} ou {@code price}, opcionalmente {@code ,desc})
+	 * 
+	 * @return página de produtos
 	 */
-	 public List<ProductDTO> findAllProducts() {
-		 return repository.findAll().stream()
-				 					.map( product -> ProductDTO.fromModel( product ) )
-				 					.collect( Collectors.toList() );
+	 public CursorPage<ProductDTO> findAllProducts(String cursor, Integer size, String sort) {
+		 KeysetCursor keyset = keyset( cursor, size, sort );
+		 return keyset.toPage( repository.scrollRows( keyset.position(), keyset.sort(), keyset.limit() ),
+				 this::withImages );
 	 }
 	 
+	/**
+	 * Exporta todo o catálogo em JSON delimitado por linha (NDJSON), lendo as
+	 * colunas dos produtos em fluxo do banco. As imagens são buscadas e o lote
+	 * é enviado a cada {@code app.export.batch-size} linhas, mantendo a memória
+	 * constante.
+	 * 
+	 * @param out
+	 * 			saída da resposta
+	 * 
+	 * @throws IOException
+	 * 				Exceção caso ocorra erro na escrita
+	 */
+	@Transactional(readOnly = true)
+	public void exportProducts(OutputStream out) throws IOException {
+		try ( Stream<ProductRow> rows = repository.streamCatalog() ) {
+			Iterator<ProductRow> iterator = rows.iterator();
+			List<ProductRow> batch = new ArrayList<>( exportBatchSize );
+			while ( iterator.hasNext() ) {
+				batch.add( iterator.next() );
+				if ( batch.size() == exportBatchSize || !iterator.hasNext() ) {
+					for ( ProductDTO product : withImages( batch ) ) {
+						out.write( objectMapper.writeValueAsBytes( product ) );
+						out.write( '\n' );
+					}
+					out.flush();
+					batch.clear();
+				}
+			}
+		}
+	}
+	 
    /**
     * Buscar produto pelo ID
     * 
@@ -61,10 +177,12 @@ public class ProductService {
     * @return produto encontrado ou null se não encontrado 	 
     */
 	public ProductDTO findProductById(Long id) {
-		Product product = repository.findById( id )
-				.orElseThrow( () -> new ResponseStatusException( HttpStatus.NOT_FOUND, "Produto não encontrado" ) );
+		return productLookups.execute( id, () -> {
+			ProductRow row = repository.findRowById( id )
+					.orElseThrow( () -> new ResponseStatusException( HttpStatus.NOT_FOUND, "Produto não encontrado" ) );
 
-		return ProductDTO.fromModel( product );
+			return row.toDTO( repository.findImagesByProductId( id ) );
+		} );
 	}
 	
 	/**
@@ -76,52 +194,29 @@ public class ProductService {
 	 * @return imagens 
 	 */
 	public List<String> getProductImages(Long productId) {
-		Product product = repository.findById( productId )
-				.orElseThrow( () -> new ResponseStatusException( HttpStatus.NOT_FOUND,
-						"Produto não encontrado com ID: " + productId ) );
+		return imageLookups.execute( productId, () -> {
+			List<String> images = repository.findImagesByProductId( productId );
+			if ( images.isEmpty() && !repository.existsById( productId ) ) {
+				throw new ResponseStatusException( HttpStatus.NOT_FOUND, "Produto não encontrado com ID: " + productId );
+			}
 
-		return product.getImages();
+			return images;
+		} );
 	}
 	
 	/**
-     * Busca uma imagem do produto
-     * @param filename Nome do arquivo da imagem
-     * @return Imagem como Resource
-     */
-	public ResponseEntity<Resource> getImage(String filename) {
-	    try {
-	        Path uploadPath = Paths.get( uploadDir ).resolve( "product-images" );
-	        Path filePath = uploadPath.resolve( filename ).normalize();
-	        Resource resource = new UrlResource( filePath.toUri() );
-	        
-	        if ( resource.exists() && resource.isReadable() ) {
-	            String contentType = Files.probeContentType( filePath );
-	            return ResponseEntity.ok()
-	                    .header( HttpHeaders.CONTENT_TYPE, contentType )
-	                    .body( resource );
-	        } else {
-	            throw new ResponseStatusException( HttpStatus.NOT_FOUND, "Imagem não encontrada: " + filename );
-	        }
-	    } catch (IOException e) {
-	        throw new ResponseStatusException( HttpStatus.INTERNAL_SERVER_ERROR, "Erro ao carregar imagem: " + filename );
-	    }
-	}
-	
-	/**
-	 * Clase para verificar imagens salvas no diretório 
+	 * Clase para verificar imagens salvas no diretório, lidas do índice em
+	 * memória em ordem de nome
 	 * 
-	 * @return imagens
+	 * @param cursor
+	 * 			cursor da página anterior ou null para a primeira página
+	 * @param size
+	 * 			tamanho da página
 	 * 
-	 * @throws IOException
-	 * 				Exceção para erro
+	 * @return página de imagens
 	 */
-	public List<String> listImages() throws IOException {
-		Path uploadPath = Paths.get( uploadDir ).resolve( "product-images" );
-		List<String> files = Files.list( uploadPath )
-	            .map( Path::getFileName )
-	            .map( Path::toString )
-	            .collect( Collectors.toList() );
-	    return files;
+	public CursorPage<String> listImages(String cursor, Integer size) {
+		return imageDirectoryIndex.page( cursor, size );
 	}
 	
 	/**
@@ -129,13 +224,310 @@ public class ProductService {
 	 * 
 	 * @param userId
 	 * 			identificador do usuário
+	 * @param cursor
+	 * 			cursor da página anterior ou null para a primeira página
+	 * @param size
+	 * 			tamanho da página
+	 * @param sort
+	 * 			ordenação ({@code id}, {@code createDate} ou {@code price}, opcionalmente {@code ,desc})
+	 * 
+	 * @return página de produtos do usuário
+	 */
+	public CursorPage<ProductDTO> getProductsByUser(String userId, String cursor, Integer size, String sort) {
+		return queryProducts( ProductFilter.ofUser( userId ), cursor, size, sort );
+	}
+	
+	/**
+	 * Retorna uma página dos produtos que atendem ao filtro
 	 * 
-	 * @return user
+	 * @param filter
+	 * 			critérios da consulta
+	 * @param cursor
+	 * 			cursor da página anterior ou null para a primeira página
+	 * @param size
+	 * 			tamanho da página
+	 * @param sort
+	 * 			ordenação ({@code id}, {@code createDate} ou {@code price}, opcionalmente {@code ,desc})
+	 * 
+	 * @return página de produtos
 	 */
-	public List<ProductDTO> getProductsByUser(String userId) {
-	    return repository.findByUserId( userId ).stream()
-	            .map( ProductDTO::fromModel )
-	            .collect( Collectors.toList() );
+	public CursorPage<ProductDTO> queryProducts(ProductFilter filter, String cursor, Integer size, String sort) {
+		if ( filter.minPrice() != null && filter.maxPrice() != null && filter.minPrice() > filter.maxPrice() ) {
+			throw new ResponseStatusException( HttpStatus.BAD_REQUEST, "Faixa de preço inválida" );
+		}
+		if ( filter.createdFrom() != null && filter.createdTo() != null
+				&& filter.createdFrom().isAfter( filter.createdTo() ) ) {
+			throw new ResponseStatusException( HttpStatus.BAD_REQUEST, "Período inválido" );
+		}
+		KeysetCursor keyset = keyset( cursor, size, sort );
+		return keyset.toPage( repository.scrollRows( ProductSpecifications.matching( filter ), keyset.position(),
+				keyset.sort(), keyset.limit() ), this::withImages );
+	}
+	
+	/**
+	 * Busca textual nos produtos, ordenada por relevância. No modo normal
+	 * busca nos nomes e descrições; no modo aproximado busca nos nomes
+	 * tolerando erros de digitação. Nos dois modos a busca corrigida é
+	 * sugerida quando houver correção, e no modo normal só quando nada for
+	 * encontrado.
+	 * 
+	 * @param query
+	 * 			texto buscado
+	 * @param size
+	 * 			quantidade máxima de resultados
+	 * @param fuzzy
+	 * 			true para o modo aproximado
+	 * 
+	 * @return produtos encontrados e a busca corrigida
+	 */
+	public SearchResults searchProducts(String query, Integer size, boolean fuzzy) {
+		if ( query == null || query.isBlank() ) {
+			throw new ResponseStatusException( HttpStatus.BAD_REQUEST, "O termo de busca é obrigatório" );
+		}
+		int limit = KeysetCursor.pageSize( size, defaultSearchSize, maxPageSize );
+		if ( fuzzy ) {
+			FuzzyResult result = fuzzyIndex.search( query, limit );
+			return new SearchResults( findInOrder( productIds( result.hits() ) ), result.correctedQuery() );
+		}
+		List<ProductDTO> products = findInOrder( productIds( searchIndex.search( query, limit ) ) );
+		String didYouMean = products.isEmpty() ? fuzzyIndex.search( query, 1 ).correctedQuery() : null;
+		return new SearchResults( products, didYouMean );
+	}
+	
+	private static List<Long> productIds(List<SearchHit> hits) {
+		return hits.stream().map( SearchHit::productId ).toList();
+	}
+	
+	/**
+	 * Sugere nomes de produto para o autocompletar da busca
+	 * 
+	 * @param prefix
+	 * 			texto digitado
+	 * @param size
+	 * 			quantidade máxima de sugestões
+	 * 
+	 * @return nomes de produto
+	 */
+	public List<String> suggestProducts(String prefix, Integer size) {
+		if ( prefix == null || prefix.isBlank() ) {
+			throw new ResponseStatusException( HttpStatus.BAD_REQUEST, "O prefixo é obrigatório" );
+		}
+		int limit = KeysetCursor.pageSize( size, ProductSuggestIndex.MAX_SUGGESTIONS, ProductSuggestIndex.MAX_SUGGESTIONS );
+		return suggestIndex.suggest( prefix, limit );
+	}
+	
+	/**
+	 * Filtra os produtos por categoria, faixa de preço e vendedor, contando
+	 * os produtos de cada valor das facetas
+	 * 
+	 * @param categories
+	 * 			categorias aceitas
+	 * @param priceBands
+	 * 			faixas de preço aceitas, como {@code 5-10}
+	 * @param userIds
+	 * 			vendedores aceitos
+	 * @param after
+	 * 			último identificador recebido, para continuar a lista
+	 * @param size
+	 * 			quantidade máxima de identificadores
+	 * 
+	 * @return identificadores encontrados e contagem das facetas
+	 */
+	public ProductFilterDTO filterProducts(List<String> categories, List<String> priceBands, List<String> userIds,
+			Long after, Integer size) {
+		try {
+			Set<Category> categoryFilter = categories == null ? Set.of()
+					: categories.stream().map( Category::fromString ).collect( Collectors.toSet() );
+			Set<PriceBand> priceBandFilter = priceBands == null ? Set.of()
+					: priceBands.stream().map( PriceBand::fromLabel ).collect( Collectors.toSet() );
+			Set<String> userFilter = userIds == null ? Set.of() : Set.copyOf( userIds );
+			return facetIndex.filter( categoryFilter, priceBandFilter, userFilter, after,
+					KeysetCursor.pageSize( size, defaultPageSize, maxPageSize ) );
+		} catch ( IllegalArgumentException e ) {
+			throw new ResponseStatusException( HttpStatus.BAD_REQUEST, e.getMessage() );
+		}
+	}
+	
+	/**
+	 * Busca vários produtos de uma vez, com uma consulta para as colunas e
+	 * outra para as imagens. Identificadores repetidos são considerados uma
+	 * única vez.
+	 * 
+	 * @param ids
+	 * 			identificadores dos produtos
+	 * 
+	 * @return produtos na ordem pedida e identificadores não encontrados
+	 */
+	public ProductBatchDTO<ProductDTO> findProductsByIds(List<Long> ids) {
+		List<Long> distinct = batchIds( ids );
+		List<ProductDTO> products = findInOrder( distinct );
+		Set<Long> found = products.stream().map( ProductDTO::id ).collect( Collectors.toSet() );
+		return new ProductBatchDTO<>( products, distinct.stream().filter( id -> !found.contains( id ) ).toList() );
+	}
+	
+	/**
+	 * Busca apenas os campos pedidos de vários produtos de uma vez. As
+	 * imagens só são consultadas quando fizerem parte dos campos.
+	 * 
+	 * @param ids
+	 * 			identificadores dos produtos
+	 * @param fields
+	 * 			campos pedidos
+	 * 
+	 * @return produtos na ordem pedida e identificadores não encontrados
+	 */
+	public ProductBatchDTO<Map<String, Object>> findProductFieldsByIds(List<Long> ids, ProductFields fields) {
+		List<Long> distinct = batchIds( ids );
+		Map<Long, Map<String, Object>> rows = new HashMap<>();
+		for ( Map<String, Object> row : repository.findFieldsByIds( distinct, fields.selections( List.of() ) ) ) {
+			rows.put( (Long) row.get( "id" ), row );
+		}
+		List<Map<String, Object>> found = distinct.stream().map( rows::get ).filter( Objects::nonNull ).toList();
+		return new ProductBatchDTO<>( withFields( found, fields ),
+				distinct.stream().filter( id -> !rows.containsKey( id ) ).toList() );
+	}
+	
+	private List<Long> batchIds(List<Long> ids) {
+		if ( ids == null || ids.isEmpty() ) {
+			throw new ResponseStatusException( HttpStatus.BAD_REQUEST, "Informe ao menos um identificador" );
+		}
+		List<Long> distinct = ids.stream().filter( Objects::nonNull ).distinct().toList();
+		if ( distinct.size() > maxPageSize ) {
+			throw new ResponseStatusException( HttpStatus.BAD_REQUEST,
+					"Informe no máximo " + maxPageSize + " identificadores" );
+		}
+		return distinct;
+	}
+	
+	/**
+	 * Lê o parâmetro {@code fields} das listagens
+	 * 
+	 * @param fields
+	 * 			campos separados por vírgula, como {@code id,name,price,images}
+	 * 
+	 * @return campos pedidos, ou null para o produto completo
+	 */
+	public ProductFields parseFields(String fields) {
+		try {
+			return ProductFields.parse( fields );
+		} catch ( IllegalArgumentException e ) {
+			throw new ResponseStatusException( HttpStatus.BAD_REQUEST, e.getMessage() );
+		}
+	}
+	
+	/**
+	 * Retorna uma página apenas com os campos pedidos dos produtos que
+	 * atendem ao filtro, selecionando só as colunas necessárias. As imagens
+	 * só são consultadas quando fizerem parte dos campos.
+	 * 
+	 * @param filter
+	 * 			critérios da consulta, ou null para todos os produtos
+	 * @param fields
+	 * 			campos pedidos
+	 * @param cursor
+	 * 			cursor da página anterior ou null para a primeira página
+	 * @param size
+	 * 			tamanho da página
+	 * @param sort
+	 * 			ordenação ({@code id}, {@code createDate} ou {@code price}, opcionalmente {@code ,desc})
+	 * 
+	 * @return página de produtos com os campos pedidos
+	 */
+	public CursorPage<Map<String, Object>> queryProductFields(ProductFilter filter, ProductFields fields,
+			String cursor, Integer size, String sort) {
+		KeysetCursor keyset = keyset( cursor, size, sort );
+		Map<String, String> selections = fields.selections(
+				keyset.sort().stream().map( Sort.Order::getProperty ).toList() );
+		return keyset.toPage( repository.scrollFields( filter == null ? null : ProductSpecifications.matching( filter ),
+				selections, keyset.position(), keyset.sort(), keyset.limit() ), rows -> withFields( rows, fields ) );
+	}
+	
+	/**
+	 * Monta a representação de cada linha apenas com os campos pedidos, na
+	 * ordem de {@link ProductDTO}, buscando as imagens de todas em uma única
+	 * consulta quando pedidas
+	 * 
+	 * @param rows
+	 * 			colunas selecionadas de cada produto
+	 * @param fields
+	 * 			campos pedidos
+	 * 
+	 * @return produtos com os campos pedidos
+	 */
+	private List<Map<String, Object>> withFields(List<Map<String, Object>> rows, ProductFields fields) {
+		Map<Long, List<String>> images = new HashMap<>();
+		if ( fields.includesImages() && !rows.isEmpty() ) {
+			List<Long> ids = rows.stream().map( row -> (Long) row.get( "id" ) ).toList();
+			for ( ProductImageRow image : repository.findImagesByProductIds( ids ) ) {
+				images.computeIfAbsent( image.productId(), id -> new ArrayList<>() ).add( image.imageUrl() );
+			}
+		}
+
+		List<Map<String, Object>> products = new ArrayList<>( rows.size() );
+		for ( Map<String, Object> row : rows ) {
+			Map<String, Object> product = new LinkedHashMap<>();
+			for ( String name : fields.names() ) {
+				if ( name.equals( ProductFields.IMAGES ) ) {
+					product.put( name, images.getOrDefault( (Long) row.get( "id" ), List.of() ) );
+				} else if ( name.equals( "categories" ) ) {
+					product.put( name, Objects.toString( row.get( name ), null ) );
+				} else {
+					product.put( name, row.get( name ) );
+				}
+			}
+			products.add( product );
+		}
+		return products;
+	}
+	
+	/**
+	 * Busca os produtos pelos identificadores, na mesma ordem, ignorando os
+	 * que não existirem mais
+	 * 
+	 * @param ids
+	 * 			identificadores dos produtos
+	 * 
+	 * @return produtos com imagens
+	 */
+	private List<ProductDTO> findInOrder(List<Long> ids) {
+		if ( ids.isEmpty() ) {
+			return List.of();
+		}
+		Map<Long, ProductRow> rows = new HashMap<>();
+		for ( ProductRow row : repository.findRowsByIds( ids ) ) {
+			rows.put( row.id(), row );
+		}
+		return withImages( ids.stream().map( rows::get ).filter( Objects::nonNull ).toList() );
+	}
+	
+	/**
+	 * Monta os DTOs das linhas informadas buscando as imagens de todas em uma
+	 * única consulta, preservando a ordem das linhas
+	 * 
+	 * @param rows
+	 * 			linhas de produto
+	 * 
+	 * @return produtos com imagens
+	 */
+	private List<ProductDTO> withImages(List<ProductRow> rows) {
+		if ( rows.isEmpty() ) {
+			return List.of();
+		}
+
+		Map<Long, List<String>> images = new HashMap<>();
+		List<Long> ids = rows.stream().map( ProductRow::id ).toList();
+		for ( ProductImageRow image : repository.findImagesByProductIds( ids ) ) {
+			images.computeIfAbsent( image.productId(), id -> new ArrayList<>() ).add( image.imageUrl() );
+		}
+
+		return rows.stream()
+				.map( row -> row.toDTO( images.getOrDefault( row.id(), List.of() ) ) )
+				.toList();
+	}
+	
+	private KeysetCursor keyset(String cursor, Integer size, String sort) {
+		int pageSize = KeysetCursor.pageSize( size, defaultPageSize, maxPageSize );
+		return KeysetCursor.of( SORT_KEYS, "id", cursor, sort, pageSize );
 	}
 	 
    /**
@@ -147,13 +539,17 @@ public class ProductService {
 	* @return produto persistido
 	* @throws ResponseStatusException se já existir um produto com o mesmo nome
 	*/
+	@Transactional
 	public ProductDTO save(ProductDTO productDTO) {
 		User user = userRepository.findById( productDTO.userId() )
 				.orElseThrow( () -> new ResponseStatusException( HttpStatus.NOT_FOUND, "Usuário não encontrado" ) );
 		Product product = new Product( productDTO );
 		product.setUser( user );
 		product.setCreateDate( LocalDateTime.now() );
-		return ProductDTO.fromModel( repository.save( product ) );
+		product = repository.save( product );
+		catalogCache.invalidate();
+		indexService.indexAfterCommit( ProductRow.fromModel( product ) );
+		return ProductDTO.fromModel( product );
 	}
 	
 	/**
@@ -167,6 +563,7 @@ public class ProductService {
 	 *           
 	 * @return produto atualizado
 	 */
+	@Transactional
 	public ProductDTO update(Long id, ProductDTO productDTO) {
 		Product product = repository.findById( id )
 				.orElseThrow( () -> new ResponseStatusException( HttpStatus.NOT_FOUND, "Produto não encontrado" ) );
@@ -179,7 +576,10 @@ public class ProductService {
 		product.setCreateDate( createDate );
 		product.setUpdateDate( LocalDateTime.now() );
 
-		return ProductDTO.fromModel( repository.save( product ) );
+		product = repository.save( product );
+		catalogCache.invalidate();
+		indexService.indexAfterCommit( ProductRow.fromModel( product ) );
+		return ProductDTO.fromModel( product );
 	}
 	
 	/**
@@ -188,10 +588,13 @@ public class ProductService {
 	 * @param id
 	 *         identificador do produto
 	 */
+	@Transactional
 	public void delete(Long id) {
 		Product product = repository.findById( id )
 				.orElseThrow( () -> new ResponseStatusException( HttpStatus.NOT_FOUND, "Produto não encontrado" ) );
 
 		repository.delete( product );
+		catalogCache.invalidate();
+		indexService.removeAfterCommit( id );
 	}
 }
@@ -0,0 +1,100 @@
+package br.com.foods.teal.services;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.InvalidMimeTypeException;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Formatos de resposta aceitos pelas rotas que serializam o corpo por conta
+ * própria (como as páginas do catálogo em cache), escolhidos pelo cabeçalho
+ * {@code Accept} da mesma forma que os conversores do Spring fazem nas
+ * demais rotas
+ *
+ * @author Caio Pereira Leal
+ */
+@Component
+public class ResponseFormats {
+
+	@Autowired
+	private MappingJackson2HttpMessageConverter jsonConverter;
+
+	@Autowired
+	private MappingJackson2CborHttpMessageConverter cborConverter;
+
+	@Autowired
+	private MappingJackson2SmileHttpMessageConverter smileConverter;
+
+	private List<ResponseFormat> formats;
+
+	@PostConstruct
+	void initFormats() {
+		formats = List.of(
+				new ResponseFormat( MediaType.APPLICATION_JSON, "", jsonConverter.getObjectMapper() ),
+				new ResponseFormat( MediaType.APPLICATION_CBOR, "cbor", cborConverter.getObjectMapper() ),
+				new ResponseFormat( new MediaType( "application", "x-jackson-smile" ), "smile",
+						smileConverter.getObjectMapper() ) );
+	}
+
+	/**
+	 * Escolhe o formato de maior preferência do cliente, ordenando os tipos
+	 * aceitos por qualidade e, entre os de mesma qualidade, do mais
+	 * específico para o curinga, como o Spring. Sem o cabeçalho, ou só com
+	 * {@code *}{@code /*}, a resposta é JSON.
+	 *
+	 * @param accept
+	 * 			cabeçalho {@code Accept} recebido
+	 *
+	 * @return formato da resposta
+	 *
+	 * @throws ResponseStatusException
+	 * 				406 quando nenhum formato aceito pelo cliente for suportado
+	 */
+	public ResponseFormat negotiate(String accept) {
+		if ( accept == null || accept.isBlank() ) {
+			return formats.get( 0 );
+		}
+		List<MediaType> accepted;
+		try {
+			accepted = new ArrayList<>( MediaType.parseMediaTypes( accept ) );
+			MimeTypeUtils.sortBySpecificity( accepted );
+		} catch ( InvalidMediaTypeException | InvalidMimeTypeException e ) {
+			throw new ResponseStatusException( HttpStatus.BAD_REQUEST, "Cabeçalho Accept inválido" );
+		}
+		for ( MediaType mediaType : accepted ) {
+			if ( mediaType.getQualityValue() == 0 ) {
+				continue;
+			}
+			for ( ResponseFormat format : formats ) {
+				if ( mediaType.isCompatibleWith( format.mediaType() ) ) {
+					return format;
+				}
+			}
+		}
+		throw new ResponseStatusException( HttpStatus.NOT_ACCEPTABLE, "Formato de resposta não suportado: " + accept );
+	}
+
+	/**
+	 * Formato de resposta
+	 *
+	 * @param mediaType tipo do conteúdo
+	 * @param tag sufixo do formato nas ETags, vazio para JSON
+	 * @param mapper serializador do formato
+	 */
+	public record ResponseFormat(MediaType mediaType, String tag, ObjectMapper mapper) {
+	}
+}
@@ -0,0 +1,95 @@
+package br.com.foods.teal.services;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Agrupa chamadas concorrentes com a mesma chave: enquanto uma busca está em
+ * andamento, as demais aguardam e recebem o mesmo resultado (ou a mesma
+ * exceção) em vez de repetir a consulta.
+ *
+ * As chamadas são contadas na métrica {@code teal.singleflight.calls}, com a
+ * tag {@code result} igual a {@code executed} ou {@code collapsed}.
+ *
+ * @author Caio Pereira Leal
+ */
+public class SingleFlight<K, V> {
+
+	private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+	private final Counter executed;
+
+	private final Counter collapsed;
+
+	/**
+	 * Cria um agrupador de chamadas
+	 *
+	 * @param name
+	 * 			nome da busca, usado na tag {@code name} da métrica
+	 * @param meterRegistry
+	 * 			registro de métricas
+	 */
+	public SingleFlight(String name, MeterRegistry meterRegistry) {
+		this.executed = counter( name, "executed", meterRegistry );
+		this.collapsed = counter( name, "collapsed", meterRegistry );
+	}
+
+	/**
+	 * Executa a busca ou aguarda a que já está em andamento para a mesma chave
+	 *
+	 * @param key
+	 * 			chave da busca
+	 * @param call
+	 * 			busca a ser executada
+	 *
+	 * @return resultado da busca
+	 */
+	public V execute(K key, Supplier<V> call) {
+		CompletableFuture<V> mine = new CompletableFuture<>();
+		CompletableFuture<V> current = inFlight.putIfAbsent( key, mine );
+		if ( current != null ) {
+			collapsed.increment();
+			return await( current );
+		}
+
+		executed.increment();
+		try {
+			V value = call.get();
+			mine.complete( value );
+			return value;
+		} catch (RuntimeException | Error e) {
+			mine.completeExceptionally( e );
+			throw e;
+		} finally {
+			inFlight.remove( key, mine );
+		}
+	}
+
+	private V await(CompletableFuture<V> future) {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			if ( e.getCause() instanceof RuntimeException cause ) {
+				throw cause;
+			}
+			if ( e.getCause() instanceof Error cause ) {
+				throw cause;
+			}
+			throw e;
+		}
+	}
+
+	private static Counter counter(String name, String result, MeterRegistry meterRegistry) {
+		return Counter.builder( "teal.singleflight.calls" )
+				.description( "Buscas executadas e agrupadas em uma busca já em andamento" )
+				.tag( "name", name )
+				.tag( "result", result )
+				.register( meterRegistry );
+	}
+}
@@ -0,0 +1,230 @@
+package br.com.foods.teal.services;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import br.com.foods.teal.dto.UserKeyRow;
+import br.com.foods.teal.model.User;
+import br.com.foods.teal.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Filtros de Bloom em memória com os emails, telefones e cpfs já
+ * cadastrados, normalizados como nas colunas de chave de {@link User}. Um
+ * valor que o filtro diz não existir dispensa a consulta de unicidade; só os
+ * possíveis repetidos vão ao banco.
+ *
+ * Os filtros são dimensionados pela quantidade de usuários e reconstruídos na
+ * inicialização e sempre que algum deles passa da capacidade. Enquanto não
+ * estão prontos, toda verificação vai ao banco e não entra na taxa de falso
+ * positivo. Valores de usuários removidos continuam no filtro e apenas geram
+ * consultas a mais.
+ *
+ * Métricas: {@code teal.user.filter.checks} (tags {@code field} e
+ * {@code result} igual a {@code new}, {@code possible} ou {@code unbuilt}),
+ * {@code teal.user.filter.false-positives} e as taxas de falso positivo
+ * {@code teal.user.filter.fpp.expected} e {@code teal.user.filter.fpp.observed}.
+ *
+ * @author Caio Pereira Leal
+ */
+@Component
+public class UserKeyFilter {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger( UserKeyFilter.class );
+
+	/**
+	 * Campos de usuário com verificação de unicidade
+	 */
+	public enum Field {
+		EMAIL, PHONE, CPF
+	}
+
+	/**
+	 * Resultado da verificação de um valor
+	 */
+	public enum Check {
+		/** o valor com certeza é novo */
+		NEW,
+		/** o valor pode já estar cadastrado */
+		POSSIBLE,
+		/** os filtros ainda não foram construídos */
+		UNBUILT
+	}
+
+	@Autowired
+	private UserRepository repository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${app.user-filter.false-positive-rate:0.01}")
+	private double falsePositiveRate;
+
+	@Value("${app.user-filter.growth:2}")
+	private double growth;
+
+	@Value("${app.user-filter.min-capacity:10000}")
+	private long minCapacity;
+
+	private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+	private volatile Map<Field, BloomFilter> filters;
+
+	private volatile Map<Field, BloomFilter> building;
+
+	private final Map<Check, Map<Field, Counter>> checks = new EnumMap<>( Check.class );
+
+	private final Map<Field, Counter> falsePositives = new EnumMap<>( Field.class );
+
+	/**
+	 * Registra as métricas e constrói os filtros a partir dos usuários
+	 * cadastrados
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void init() {
+		for ( Check check : Check.values() ) {
+			checks.put( check, new EnumMap<>( Field.class ) );
+		}
+		for ( Field field : Field.values() ) {
+			String tag = field.name().toLowerCase();
+			for ( Check check : Check.values() ) {
+				checks.get( check ).put( field, Counter.builder( "teal.user.filter.checks" )
+						.tag( "field", tag ).tag( "result", check.name().toLowerCase() ).register( meterRegistry ) );
+			}
+			falsePositives.put( field, Counter.builder( "teal.user.filter.false-positives" )
+					.tag( "field", tag ).register( meterRegistry ) );
+			Gauge.builder( "teal.user.filter.fpp.expected", this, filter -> filter.expectedRate( field ) )
+					.tag( "field", tag ).register( meterRegistry );
+			Gauge.builder( "teal.user.filter.fpp.observed", this, filter -> filter.observedRate( field ) )
+					.tag( "field", tag ).register( meterRegistry );
+		}
+		rebuild();
+	}
+
+	/**
+	 * Reconstrói os filtros lendo os usuários em fluxo. Valores gravados
+	 * durante a reconstrução entram nos filtros antigos e nos novos.
+	 */
+	public void rebuild() {
+		if ( !rebuilding.compareAndSet( false, true ) ) {
+			return;
+		}
+		try {
+			long capacity = Math.max( minCapacity, (long) ( repository.count() * growth ) );
+			Map<Field, BloomFilter> fresh = new EnumMap<>( Field.class );
+			for ( Field field : Field.values() ) {
+				fresh.put( field, new BloomFilter( capacity, falsePositiveRate ) );
+			}
+			building = fresh;
+
+			TransactionTemplate readOnly = new TransactionTemplate( transactionManager );
+			readOnly.setReadOnly( true );
+			readOnly.executeWithoutResult( status -> {
+				try ( Stream<UserKeyRow> rows = repository.streamContacts() ) {
+					// as linhas trazem os valores originais, inclusive de usuários ainda sem as chaves
+					rows.forEach( row -> put( fresh, User.normalizeEmail( row.emailKey() ),
+							User.normalizeDigits( row.phoneKey() ), User.normalizeDigits( row.cpfKey() ) ) );
+				}
+			} );
+			filters = fresh;
+			LOGGER.info( "Filtros de unicidade de usuário reconstruídos com capacidade {}", capacity );
+		} finally {
+			building = null;
+			rebuilding.set( false );
+		}
+	}
+
+	/**
+	 * Verifica se o valor normalizado pode já estar cadastrado
+	 *
+	 * @param field
+	 * 			campo verificado
+	 * @param key
+	 * 			valor normalizado
+	 *
+	 * @return {@link Check#NEW} quando o valor com certeza é novo
+	 */
+	public Check check(Field field, String key) {
+		Map<Field, BloomFilter> current = filters;
+		Check result;
+		if ( current == null ) {
+			result = Check.UNBUILT;
+		} else {
+			result = current.get( field ).mightContain( key ) ? Check.POSSIBLE : Check.NEW;
+		}
+		checks.get( result ).get( field ).increment();
+		return result;
+	}
+
+	/**
+	 * Registra que um valor {@link Check#POSSIBLE possivelmente repetido} não
+	 * existia no banco
+	 *
+	 * @param field
+	 * 			campo verificado
+	 */
+	public void recordFalsePositive(Field field) {
+		falsePositives.get( field ).increment();
+	}
+
+	/**
+	 * Inclui os valores de um usuário gravado
+	 *
+	 * @param emailKey
+	 * 			email normalizado
+	 * @param phoneKey
+	 * 			telefone normalizado
+	 * @param cpfKey
+	 * 			cpf normalizado
+	 */
+	public void add(String emailKey, String phoneKey, String cpfKey) {
+		Map<Field, BloomFilter> pending = building;
+		if ( pending != null ) {
+			put( pending, emailKey, phoneKey, cpfKey );
+		}
+		Map<Field, BloomFilter> current = filters;
+		if ( current != null ) {
+			put( current, emailKey, phoneKey, cpfKey );
+			if ( current.values().stream().anyMatch( BloomFilter::isSaturated ) && !rebuilding.get() ) {
+				CompletableFuture.runAsync( this::rebuild );
+			}
+		}
+	}
+
+	private static void put(Map<Field, BloomFilter> target, String emailKey, String phoneKey, String cpfKey) {
+		target.get( Field.EMAIL ).put( emailKey );
+		target.get( Field.PHONE ).put( phoneKey );
+		target.get( Field.CPF ).put( cpfKey );
+	}
+
+	private double expectedRate(Field field) {
+		Map<Field, BloomFilter> current = filters;
+		return current == null ? 1 : current.get( field ).expectedFalsePositiveRate();
+	}
+
+	/**
+	 * Falsos positivos sobre todos os valores que de fato eram novos
+	 */
+	private double observedRate(Field field) {
+		double negatives = checks.get( Check.NEW ).get( field ).count() + falsePositives.get( field ).count();
+		return negatives == 0 ? 0 : falsePositives.get( field ).count() / negatives;
+	}
+}
@@ -2,16 +2,36 @@ package br.com.foods.teal.services;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
 
+import org.hibernate.exception.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
 import br.com.foods.teal.dto.UserDTO;
+import br.com.foods.teal.dto.UserKeyRow;
+import br.com.foods.teal.model.Product;
 import br.com.foods.teal.model.User;
+import br.com.foods.teal.pagination.CursorPage;
+import br.com.foods.teal.pagination.KeysetCursor;
 import br.com.foods.teal.repository.UserRepository;
+import br.com.foods.teal.services.UserKeyFilter.Check;
+import br.com.foods.teal.services.UserKeyFilter.Field;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 
 /**
  * Serviço para Usuário
@@ -21,18 +41,71 @@ import br.com.foods.teal.repository.UserRepository;
 @Service
 public class UserService {
 
+	private static final Logger LOGGER = LoggerFactory.getLogger( UserService.class );
+
+	private static final Map<String, Function<String, Object>> SORT_KEYS = Map.of(
+			"id", String::valueOf,
+			"createDate", LocalDateTime::parse );
+
+	/**
+	 * Restrições de unicidade das colunas normalizadas de {@link User}
+	 */
+	private static final Map<String, Field> UNIQUE_KEYS = Map.of(
+			"uk_user_email_key", Field.EMAIL,
+			"uk_user_phone_key", Field.PHONE,
+			"uk_user_cpf_key", Field.CPF );
+
 	@Autowired
 	private UserRepository repository;
 	
+	@Autowired
+	private CatalogCacheService catalogCache;
+	
+	@Autowired
+	private ProductIndexService indexService;
+	
+	@Autowired
+	private UserKeyFilter keyFilter;
+	
+	@Autowired
+	private MeterRegistry meterRegistry;
+	
+	private SingleFlight<String, UserDTO> userLookups;
+	
+	@Value("${app.pagination.default-size:50}")
+	private int defaultPageSize;
+	
+	@Value("${app.pagination.max-size:500}")
+	private int maxPageSize;
+	
+	@Value("${app.user-backfill.batch-size:500}")
+	private int backfillBatchSize;
+	
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+	
+	@PostConstruct
+	void initLookups() {
+		userLookups = new SingleFlight<>( "user", meterRegistry );
+	}
+	
 	/**
-	 * Retorna todos os usuário salvos
+	 * Retorna uma página dos usuário salvos
 	 * 
-	 * @return usuários
+	 * @param cursor
+	 * 			cursor da página anterior ou null para a primeira página
+	 * @param size
+	 * 			tamanho da página
+	 * @param sort
+	 * 			ordenação ({@code id} ou {@code createDate}, opcionalmente {@code ,desc})
+	 * 
+	 * @return página de usuários
 	 */
-	public List<UserDTO> findAllUsers() {
-        return repository.findAll().stream()
-                         .map( user -> UserDTO.fromModel( user ) )
-                         .collect( Collectors.toList() );
+	public CursorPage<UserDTO> findAllUsers(String cursor, Integer size, String sort) {
+		int pageSize = KeysetCursor.pageSize( size, defaultPageSize, maxPageSize );
+		KeysetCursor keyset = KeysetCursor.of( SORT_KEYS, "id", cursor, sort, pageSize );
+        return keyset.toPage( repository.scrollUsers( keyset.position(), keyset.sort(), keyset.limit() ),
+        		users -> users.stream().map( UserDTO::fromModel ).toList() );
     }
 	
 	/**
@@ -44,10 +117,12 @@ public class UserService {
     * @return usuário encontrado ou null se não encontrado
     */
 	public UserDTO findUserById(String id) {
-		User user = repository.findById( id )
-				.orElseThrow( () -> new ResponseStatusException( HttpStatus.NOT_FOUND, "Usuário não encontrado" ) );
+		return userLookups.execute( id, () -> {
+			User user = repository.findById( id )
+					.orElseThrow( () -> new ResponseStatusException( HttpStatus.NOT_FOUND, "Usuário não encontrado" ) );
 
-		return UserDTO.fromModel( user );
+			return UserDTO.fromModel( user );
+		} );
 	}
 	
 	/**
@@ -59,27 +134,162 @@ public class UserService {
 	 * @return usuário persistido
 	 */
 	public UserDTO save(UserDTO userDto) {	
-		validUser( userDto );
+		validUser( userDto, null );
 		User user = new User( userDto );
 		user.setCreateDate( LocalDateTime.now() );
-		return UserDTO.fromModel( repository.save( user ) );
+		user = saveChecked( user, userDto );
+		keyFilter.add( user.getEmailKey(), user.getPhoneKey(), user.getCpfKey() );
+		return UserDTO.fromModel( user );
 	}
 	
-	private void validUser(UserDTO userDto) {
-		repository.findByEmailIgnoreCase( userDto.email() ).ifPresent( existingProduct -> {
-			throw new ResponseStatusException( HttpStatus.CONFLICT,
-					"Já existe um usuário cadastrado com o email: " + userDto.email() );
-		} );
-		
-		repository.findByPhoneIgnoreCase( userDto.phone() ).ifPresent( existingProduct -> {
-			throw new ResponseStatusException( HttpStatus.CONFLICT,
-					"Já existe um usuário cadastrado com o telefone: " + userDto.phone() );
-		} );
-		
-		repository.findByCpfIgnoreCase( userDto.cpf() ).ifPresent( existingProduct -> {
-			throw new ResponseStatusException( HttpStatus.CONFLICT,
-					"Já existe um usuário cadastrado com o cpf: " + userDto.cpf() );
-		} );
+	/**
+	 * Grava o usuário já enviando ao banco, para que a violação de
+	 * unicidade de outro cadastro gravado entre a verificação e a gravação
+	 * chegue aqui e seja informada pelo campo em conflito. Outras violações
+	 * são repassadas.
+	 * 
+	 * @param user
+	 * 			usuário a gravar
+	 * @param userDto
+	 * 			dados recebidos, usados na mensagem
+	 * 
+	 * @return usuário gravado
+	 */
+	private User saveChecked(User user, UserDTO userDto) {
+		try {
+			return repository.saveAndFlush( user );
+		} catch ( DataIntegrityViolationException e ) {
+			String constraint = constraintName( e );
+			for ( Map.Entry<String, Field> key : UNIQUE_KEYS.entrySet() ) {
+				if ( constraint.contains( key.getKey() ) ) {
+					throw duplicated( key.getValue(), userDto );
+				}
+			}
+			throw e;
+		}
+	}
+	
+	/**
+	 * Verifica se email, telefone ou cpf já pertencem a outro usuário, em uma
+	 * única consulta. A consulta é dispensada quando o {@link UserKeyFilter}
+	 * garante que os três valores são novos. Quando mais de um campo
+	 * conflita, o email é informado primeiro, depois o telefone e por último
+	 * o cpf.
+	 * 
+	 * @param userDto
+	 * 			usuário a gravar
+	 * @param ownId
+	 * 			identificador do próprio usuário em uma atualização, ou null
+	 */
+	private void validUser(UserDTO userDto, String ownId) {
+		String emailKey = User.normalizeEmail( userDto.email() );
+		String phoneKey = User.normalizeDigits( userDto.phone() );
+		String cpfKey = User.normalizeDigits( userDto.cpf() );
+		Check email = keyFilter.check( Field.EMAIL, emailKey );
+		Check phone = keyFilter.check( Field.PHONE, phoneKey );
+		Check cpf = keyFilter.check( Field.CPF, cpfKey );
+		if ( email == Check.NEW && phone == Check.NEW && cpf == Check.NEW ) {
+			return;
+		}
+
+		List<UserKeyRow> existing = repository.findConflicts( emailKey, phoneKey, cpfKey );
+		recordFalsePositive( Field.EMAIL, email, emailKey, existing, UserKeyRow::emailKey );
+		recordFalsePositive( Field.PHONE, phone, phoneKey, existing, UserKeyRow::phoneKey );
+		recordFalsePositive( Field.CPF, cpf, cpfKey, existing, UserKeyRow::cpfKey );
+
+		List<UserKeyRow> conflicts = existing.stream()
+				.filter( row -> !row.id().equals( ownId ) )
+				.toList();
+
+		if ( conflicts.stream().anyMatch( row -> sameKey( emailKey, row.emailKey() ) ) ) {
+			throw duplicated( Field.EMAIL, userDto );
+		}
+		if ( conflicts.stream().anyMatch( row -> sameKey( phoneKey, row.phoneKey() ) ) ) {
+			throw duplicated( Field.PHONE, userDto );
+		}
+		if ( conflicts.stream().anyMatch( row -> sameKey( cpfKey, row.cpfKey() ) ) ) {
+			throw duplicated( Field.CPF, userDto );
+		}
+	}
+	
+	/**
+	 * Nome da restrição violada, em minúsculas, como informado pelo Hibernate
+	 * (o H2, por exemplo, acrescenta o esquema e o índice ao nome)
+	 */
+	private static String constraintName(DataIntegrityViolationException e) {
+		for ( Throwable cause = e.getCause(); cause != null; cause = cause.getCause() ) {
+			if ( cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null ) {
+				return violation.getConstraintName().toLowerCase( Locale.ROOT );
+			}
+		}
+		return "";
+	}
+	
+	private static ResponseStatusException duplicated(Field field, UserDTO userDto) {
+		String message = switch ( field ) {
+			case EMAIL -> "o email: " + userDto.email();
+			case PHONE -> "o telefone: " + userDto.phone();
+			case CPF -> "o cpf: " + userDto.cpf();
+		};
+		return new ResponseStatusException( HttpStatus.CONFLICT, "Já existe um usuário cadastrado com " + message );
+	}
+	
+	/**
+	 * Só valores que o filtro construído apontou como possíveis contam como
+	 * falso positivo
+	 */
+	private void recordFalsePositive(Field field, Check check, String key, List<UserKeyRow> existing,
+			Function<UserKeyRow, String> column) {
+		if ( check == Check.POSSIBLE && existing.stream().noneMatch( row -> sameKey( key, column.apply( row ) ) ) ) {
+			keyFilter.recordFalsePositive( field );
+		}
+	}
+	
+	private static boolean sameKey(String key, String existing) {
+		return key != null && key.equals( existing );
+	}
+	
+	/**
+	 * Preenche as colunas normalizadas dos usuários gravados antes delas
+	 * existirem, para que a verificação de unicidade os enxergue. Os usuários
+	 * são lidos em lotes de {@code app.user-backfill.batch-size}, em ordem de
+	 * identificador, cada lote na sua transação.
+	 *
+	 * Registros antigos podem coincidir só depois de normalizados ("(12)
+	 * 3456-789" e "123456789", email com espaços nas pontas). O usuário cujas
+	 * chaves já pertencem a outro fica sem elas, com um aviso no log indicando
+	 * os identificadores em conflito, em vez de violar as restrições de
+	 * unicidade e interromper a inicialização.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void backfillKeys() {
+		TransactionTemplate transaction = new TransactionTemplate( transactionManager );
+		String after = "";
+		while ( after != null ) {
+			String from = after;
+			after = transaction.execute( status -> {
+				List<User> batch = repository.findByEmailKeyIsNullAndIdGreaterThanOrderById( from,
+						Limit.of( backfillBatchSize ) );
+				batch.forEach( this::backfillKeys );
+				return batch.size() < backfillBatchSize ? null : batch.get( batch.size() - 1 ).getId();
+			} );
+		}
+	}
+	
+	/**
+	 * A consulta de conflitos descarrega antes os usuários já normalizados no
+	 * lote, então também enxerga conflitos dentro do próprio lote
+	 */
+	private void backfillKeys(User user) {
+		List<String> conflicts = repository.findConflicts( User.normalizeEmail( user.getEmail() ),
+				User.normalizeDigits( user.getPhone() ), User.normalizeDigits( user.getCpf() ) )
+				.stream().map( UserKeyRow::id ).toList();
+		if ( conflicts.isEmpty() ) {
+			user.normalizeKeys();
+		} else {
+			LOGGER.warn( "Usuário {} ficou sem as chaves normalizadas: email, telefone ou cpf coincide com {}",
+					user.getId(), conflicts );
+		}
 	}
 	
 	/**
@@ -97,12 +307,15 @@ public class UserService {
 		User user = repository.findById( id )
 				.orElseThrow( () -> new ResponseStatusException( HttpStatus.NOT_FOUND, "Usuário não encontrado" ) );
 		LocalDateTime createDate = user.getCreateDate();
+		validUser( userDTO, id );
 		
 		user = new User( userDTO );
 		user.setCreateDate( createDate );
 		user.setUpdateDate( LocalDateTime.now() );
 
-		return UserDTO.fromModel( repository.save( user ) );
+		user = saveChecked( user, userDTO );
+		keyFilter.add( user.getEmailKey(), user.getPhoneKey(), user.getCpfKey() );
+		return UserDTO.fromModel( user );
 	}
 	
 	/**
@@ -115,6 +328,10 @@ public class UserService {
 		User user = repository.findById( id )
 				.orElseThrow( () -> new ResponseStatusException( HttpStatus.NOT_FOUND, "Usuário não encontrado" ) );
 
+		List<Long> productIds = user.getProducts().stream().map( Product::getId ).toList();
 		repository.delete( user );
+		// os produtos do usuário são removidos em cascata
+		catalogCache.invalidate();
+		productIds.forEach( indexService::removeAfterCommit );
 	}
 }
@@ -0,0 +1,104 @@
+package br.com.foods.teal.tools;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import br.com.foods.teal.services.ImageLayout;
+import br.com.foods.teal.services.ImageStorageService;
+
+/**
+ * Move as imagens guardadas direto em {@code product-images} para os
+ * subdiretórios da {@link ImageLayout disposição}. Os nomes não mudam,
+ * então as URLs já gravadas nos produtos continuam válidas, e a aplicação
+ * continua no ar durante a migração: a entrega procura o arquivo na raiz
+ * quando ele ainda não está no subdiretório.
+ *
+ * Só é criada com {@code app.images.migrate-layout=true} e roda uma vez,
+ * após a inicialização, sobre o {@code app.upload.dir} da aplicação.
+ *
+ * @author Caio Pereira Leal
+ */
+@Component
+@ConditionalOnProperty(name = "app.images.migrate-layout", havingValue = "true")
+public class ImageLayoutMigration implements ApplicationRunner {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger( ImageLayoutMigration.class );
+
+	@Value("${app.upload.dir:${user.home}}")
+	private String uploadDir;
+
+	/**
+	 * Executa a migração
+	 *
+	 * @param args
+	 * 			argumentos da aplicação
+	 *
+	 * @throws IOException
+	 * 				Exceção ao mover os arquivos
+	 */
+	@Override
+	public void run(ApplicationArguments args) throws IOException {
+		Path imageDir = Paths.get( uploadDir ).resolve( "product-images" );
+		LOGGER.info( "Migrando as imagens de {} para os subdiretórios", imageDir );
+		Result result = migrate( imageDir );
+		LOGGER.info( "{} imagens movidas, {} duplicadas removidas, {} ignoradas", result.moved(),
+				result.duplicates(), result.skipped().size() );
+		result.skipped().forEach( name -> LOGGER.warn( "Imagem mantida na raiz (já existe outra com o mesmo nome): {}",
+				name ) );
+	}
+
+	/**
+	 * Move cada arquivo da raiz do diretório de imagens para o seu
+	 * subdiretório. Um arquivo guardado pelo conteúdo que já exista no
+	 * subdiretório é apenas removido da raiz; nomes antigos repetidos são
+	 * mantidos na raiz.
+	 */
+	private static Result migrate(Path imageDir) throws IOException {
+		int moved = 0;
+		int duplicates = 0;
+		List<String> skipped = new ArrayList<>();
+		try ( DirectoryStream<Path> entries = Files.newDirectoryStream( imageDir, Files::isRegularFile ) ) {
+			for ( Path source : entries ) {
+				String name = source.getFileName().toString();
+				Path target = ImageLayout.resolve( imageDir, name );
+				Files.createDirectories( target.getParent() );
+				try {
+					Files.move( source, target );
+					moved++;
+				} catch (FileAlreadyExistsException e) {
+					if ( ImageStorageService.CONTENT_ADDRESSED_NAME.matcher( name ).matches() ) {
+						Files.delete( source );
+						duplicates++;
+					} else {
+						skipped.add( name );
+					}
+				}
+			}
+		}
+		return new Result( moved, duplicates, skipped );
+	}
+
+	/**
+	 * Resultado da migração
+	 *
+	 * @param moved arquivos movidos
+	 * @param duplicates arquivos guardados pelo conteúdo que já estavam no subdiretório
+	 * @param skipped nomes mantidos na raiz por já existirem no subdiretório
+	 */
+	private record Result(int moved, int duplicates, List<String> skipped) {
+	}
+}
@@ -0,0 +1,141 @@
+package br.com.foods.teal.codec;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+
+import br.com.foods.teal.dto.ProductDTO;
+import br.com.foods.teal.dto.UserDTO;
+
+/**
+ * Classe para teste da serialização escrita à mão dos DTOs, comparando com a
+ * serialização padrão do Jackson nos formatos da aplicação
+ *
+ * @author Caio Pereira Leal
+ */
+public class DtoCodecParityTest {
+
+	private static final LocalDateTime DATE = LocalDateTime.of( 2025, 3, 1, 10, 30 );
+
+	private static final List<ProductDTO> PRODUCTS = List.of(
+			new ProductDTO( 1L, "Maçã \"Fuji\"", "Frutas", "Doce\ne crocante", "kg",
+					List.of( "/product-images/a.png", "/product-images/b.png" ), 8.5, 3, "u0", DATE, DATE ),
+			new ProductDTO( Long.MAX_VALUE, "Alface", "Verduras", null, "un", List.of(), 10.0, 0, "u1", null, null ),
+			new ProductDTO( null, null, null, null, null, null, null, null, null, null, null ),
+			new ProductDTO( 2L, "Açafrão ☃", "Outros", "", "g", List.of( "" ), 1e-7, Integer.MAX_VALUE, "", DATE,
+					null ) );
+
+	private static final List<UserDTO> USERS = List.of(
+			new UserDTO( "1", "João \"Teste\"", "joao@email.com", "(11) 91234-5678", "123.456.789-00", DATE, DATE ),
+			new UserDTO( null, null, null, null, null, null, null ) );
+
+	private static final List<String> PRODUCT_INPUTS = List.of(
+			"""
+			{"id":3,"name":"Pera","categories":"Frutas","description":"x","unit":"kg",
+			 "images":["/product-images/c.png"],"price":4.25,"quantity":7,"userId":"u2"}
+			""",
+			"""
+			{"userId":"u2","quantity":"7","price":"4","images":null,"createDate":"2025-01-01T00:00:00",
+			 "updateDate":[2025,1,1],"desconhecido":{"a":[1,2]},"id":"9"}
+			""",
+			"""
+			{"images":[],"price":5,"quantity":1.0,"description":null}
+			""",
+			"{}" );
+
+	private static final List<String> USER_INPUTS = List.of(
+			"""
+			{"id":"7","name":"Ana","email":"ana@email.com","phone":"999","cpf":"000"}
+			""",
+			"""
+			{"cpf":null,"createDate":"2025-01-01T00:00:00","extra":true,"id":"8"}
+			""",
+			"{}" );
+
+	/**
+	 * Testa que JSON, CBOR e Smile saem com os mesmos bytes com e sem o
+	 * módulo
+	 *
+	 * @throws Exception
+	 *              Lança Excelções
+	 */
+	@Test
+	void testSerializationMatchesDefault() throws Exception {
+		for ( Mappers mappers : mappers() ) {
+			for ( ProductDTO product : PRODUCTS ) {
+				assertArrayEquals( mappers.standard().writeValueAsBytes( product ),
+						mappers.codec().writeValueAsBytes( product ), product::toString );
+			}
+			for ( UserDTO user : USERS ) {
+				assertArrayEquals( mappers.standard().writeValueAsBytes( user ),
+						mappers.codec().writeValueAsBytes( user ), user::toString );
+			}
+			assertArrayEquals( mappers.standard().writeValueAsBytes( PRODUCTS ),
+					mappers.codec().writeValueAsBytes( PRODUCTS ) );
+		}
+	}
+
+	/**
+	 * Testa que a leitura com e sem o módulo produz os mesmos DTOs, inclusive
+	 * com valores convertidos, datas e campos desconhecidos
+	 *
+	 * @throws Exception
+	 *              Lança Excelções
+	 */
+	@Test
+	void testDeserializationMatchesDefault() throws Exception {
+		for ( Mappers mappers : mappers() ) {
+			for ( ProductDTO product : PRODUCTS ) {
+				byte[] bytes = mappers.standard().writeValueAsBytes( product );
+				assertEquals( mappers.standard().readValue( bytes, ProductDTO.class ),
+						mappers.codec().readValue( bytes, ProductDTO.class ) );
+			}
+			for ( UserDTO user : USERS ) {
+				byte[] bytes = mappers.standard().writeValueAsBytes( user );
+				assertEquals( mappers.standard().readValue( bytes, UserDTO.class ),
+						mappers.codec().readValue( bytes, UserDTO.class ) );
+			}
+		}
+
+		Mappers json = mappers().get( 0 );
+		for ( String input : PRODUCT_INPUTS ) {
+			assertEquals( json.standard().readValue( input, ProductDTO.class ),
+					json.codec().readValue( input, ProductDTO.class ), input );
+		}
+		for ( String input : USER_INPUTS ) {
+			assertEquals( json.standard().readValue( input, UserDTO.class ),
+					json.codec().readValue( input, UserDTO.class ), input );
+		}
+	}
+
+	/**
+	 * Mapeadores com a configuração do Spring Boot, que não falha em campos
+	 * desconhecidos
+	 */
+	private static List<Mappers> mappers() {
+		return List.of(
+				new Mappers( configure( JsonMapper.builder() ).build(),
+						configure( JsonMapper.builder() ).addModule( new DtoCodecModule() ).build() ),
+				new Mappers( configure( CBORMapper.builder() ).build(),
+						configure( CBORMapper.builder() ).addModule( new DtoCodecModule() ).build() ),
+				new Mappers( configure( SmileMapper.builder() ).build(),
+						configure( SmileMapper.builder() ).addModule( new DtoCodecModule() ).build() ) );
+	}
+
+	private static <B extends com.fasterxml.jackson.databind.cfg.MapperBuilder<?, B>> B configure(B builder) {
+		return builder.disable( DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES );
+	}
+
+	private record Mappers(ObjectMapper standard, ObjectMapper codec) {
+	}
+}
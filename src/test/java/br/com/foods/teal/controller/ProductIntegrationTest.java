@@ -0,0 +1,996 @@
+package br.com.foods.teal.controller;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.mock.web.MockPart;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.util.FileSystemUtils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+
+import br.com.foods.teal.model.Category;
+import br.com.foods.teal.model.Product;
+import br.com.foods.teal.model.User;
+import br.com.foods.teal.pagination.CursorPage;
+import br.com.foods.teal.repository.ProductRepository;
+import br.com.foods.teal.repository.UserRepository;
+import br.com.foods.teal.services.CatalogCacheService;
+import br.com.foods.teal.services.ImageStorageService;
+import br.com.foods.teal.services.ImageStorageService.StoredImages;
+import br.com.foods.teal.services.ProductIndexService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Classe para teste de integração do produto
+ *
+ * @author Caio Pereira Leal
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT,
+		properties = { "spring.jpa.properties.hibernate.generate_statistics=true",
+				"app.images.variants.max-pixels=1000000",
+				"app.upload.dir=" + ProductIntegrationTest.UPLOAD_DIR,
+				"spring.security.user.password=" + ProductIntegrationTest.METRICS_PASSWORD })
+@AutoConfigureMockMvc
+@ActiveProfiles("teste")
+public class ProductIntegrationTest {
+
+	private static final int CATALOG_SIZE = 1000;
+
+	private static final int PAGE_SIZE = 500;
+
+	static final String METRICS_PASSWORD = "senha-das-metricas";
+
+	static final String UPLOAD_DIR = "target/test-uploads/product";
+
+	@Autowired
+    private MockMvc mockMvc;
+	@Autowired
+	private UserRepository userRepository;
+	@Autowired
+	private ProductRepository productRepository;
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+	@Autowired
+	private CatalogCacheService catalogCache;
+	@Autowired
+	private ProductIndexService indexService;
+	@Autowired
+	private MeterRegistry meterRegistry;
+	@Autowired
+	private ImageStorageService imageStorageService;
+
+	/**
+	 * Classe incia antes dos testes e deixa um catálogo de produtos registrado
+	 */
+    @BeforeEach
+    void setUp() {
+    	productRepository.deleteAll();
+    	userRepository.deleteAll();
+
+    	List<User> users = new ArrayList<>();
+    	for (int i = 0; i < 10; i++) {
+    		users.add(userRepository.save(new User("u" + i, "Vendedor " + i, "v" + i + "@email.com", "9" + i, "0" + i)));
+    	}
+
+    	List<Product> products = new ArrayList<>();
+    	for (int i = 0; i < CATALOG_SIZE; i++) {
+    		products.add(new Product("Produto " + i, Category.Frutas, "Descrição " + i, "kg", (double) i,
+    				new ArrayList<>(List.of("/product-images/" + i + "-a.png", "/product-images/" + i + "-b.png")),
+    				i, users.get(i % users.size())));
+    	}
+    	productRepository.saveAll(products);
+    	catalogCache.invalidate();
+    	indexService.rebuild();
+    }
+
+    /**
+     * Remove as imagens enviadas pelos testes
+     *
+     * @throws IOException
+     *              falha ao apagar o diretório
+     */
+    @AfterAll
+    static void removeUploads() throws IOException {
+    	FileSystemUtils.deleteRecursively(Paths.get(UPLOAD_DIR));
+    }
+
+    /**
+     * Testa que a listagem de produtos executa um número fixo de consultas,
+     * sem uma consulta de imagens ou de usuário por produto e sem carregar
+     * entidades
+     *
+     * @throws Exception
+     *              Lança Excelções
+     */
+    @Test
+    void testGetAllProductsStatementCount() throws Exception {
+    	Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    	statistics.clear();
+
+        mockMvc.perform(get("/product")
+                .param("size", String.valueOf(PAGE_SIZE))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(PAGE_SIZE)))
+                .andExpect(jsonPath("$[0].images.length()", is(2)))
+                .andExpect(jsonPath("$[0].userId", is("u0")));
+
+        long statements = statistics.getPrepareStatementCount();
+        assertTrue(statements <= 2, "Consultas executadas na listagem: " + statements);
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    /**
+     * Testa que a listagem de produtos por usuário executa um número fixo de
+     * consultas
+     *
+     * @throws Exception
+     *              Lança Excelções
+     */
+    @Test
+    void testGetProductsByUserStatementCount() throws Exception {
+    	Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    	statistics.clear();
+
+        mockMvc.perform(get("/product/user/{userId}", "u1")
+                .param("size", String.valueOf(PAGE_SIZE))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(CATALOG_SIZE / 10)))
+                .andExpect(jsonPath("$[0].userId", is("u1")));
+
+        long statements = statistics.getPrepareStatementCount();
+        assertTrue(statements <= 2, "Consultas executadas na listagem por usuário: " + statements);
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    /**
+     * Testa que a listagem responde 304 para a ETag da versão atual do
+     * catálogo e muda de versão após a criação de um produto
+     *
+     * @throws Exception
+     *              Lança Excelções
+     */
+    @Test
+    void testGetAllProductsETag() throws Exception {
+        String etag = mockMvc.perform(get("/product")
+                .param("size", "10")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/product")
+                .param("size", "10")
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        MockPart product = productPart("""
+            {
+                "name": "Tomate",
+                "categories": "Legumes",
+                "unit": "kg",
+                "price": 8.5,
+                "quantity": 3
+            }
+        """.getBytes());
+        mockMvc.perform(multipart("/product")
+                .part(product)
+                .param("userId", "u0"))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/product")
+                .param("size", "10")
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(10)));
+    }
+
+    /**
+     * Testa que a paginação por {@code createDate} percorre todos os produtos
+     * quando parte deles não tem data, com os nulos no fim da ordem crescente
+     * e no início da decrescente
+     *
+     * @throws Exception
+     *              Lança Excelções
+     */
+    @Test
+    void testGetAllProductsWithNullSortKey() throws Exception {
+    	LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+    	List<Product> dated = productRepository.findAll().stream()
+    			.filter(product -> product.getPrice() < 250)
+    			.toList();
+    	dated.forEach(product -> product.setCreateDate(start.plusMinutes(product.getPrice().longValue())));
+    	productRepository.saveAll(dated);
+    	catalogCache.invalidate();
+
+    	List<JsonNode> ascending = pageAll("createDate");
+    	assertEquals(CATALOG_SIZE, ascending.size());
+    	assertEquals(CATALOG_SIZE, ascending.stream().map(item -> item.get("id").asLong()).distinct().count());
+    	assertEquals(0.0, ascending.get(0).get("price").asDouble());
+    	assertEquals(249.0, ascending.get(249).get("price").asDouble());
+    	assertTrue(ascending.get(250).get("price").asDouble() >= 250);
+
+    	List<JsonNode> descending = pageAll("createDate,desc");
+    	assertEquals(CATALOG_SIZE, descending.size());
+    	assertEquals(CATALOG_SIZE, descending.stream().map(item -> item.get("id").asLong()).distinct().count());
+    	assertTrue(descending.get(749).get("price").asDouble() >= 250);
+    	assertEquals(249.0, descending.get(750).get("price").asDouble());
+    	assertEquals(0.0, descending.get(999).get("price").asDouble());
+    }
+
+    private List<JsonNode> pageAll(String sort) throws Exception {
+    	ObjectMapper mapper = new ObjectMapper();
+    	List<JsonNode> items = new ArrayList<>();
+    	String cursor = null;
+    	do {
+    		var request = get("/product").param("size", "250").param("sort", sort);
+    		if (cursor != null) {
+    			request.param("cursor", cursor);
+    		}
+    		MvcResult result = mockMvc.perform(request.accept(MediaType.APPLICATION_JSON))
+    				.andExpect(status().isOk())
+    				.andReturn();
+    		mapper.readTree(result.getResponse().getContentAsByteArray()).forEach(items::add);
+    		cursor = result.getResponse().getHeader(CursorPage.NEXT_CURSOR_HEADER);
+    	} while (cursor != null);
+    	return items;
+    }
+
+    /**
+     * Testa que as métricas exigem o usuário das métricas, mesmo vindo da
+     * própria máquina (como atrás de um proxy), e que o health continua aberto
+     *
+     * @throws Exception
+     *              Lança Excelções
+     */
+    @Test
+    void testMetricsRequireRole() throws Exception {
+        mockMvc.perform(get("/actuator/metrics/hikaricp.connections.usage")
+                .with(request -> {
+                    request.setRemoteAddr("127.0.0.1");
+                    return request;
+                }))
+                .andExpect(status().isUnauthorized());
+
+        mockMvc.perform(get("/actuator/metrics/hikaricp.connections.usage")
+                .header(HttpHeaders.AUTHORIZATION, basic("metrics", "errada")))
+                .andExpect(status().isUnauthorized());
+
+        mockMvc.perform(get("/actuator/metrics/hikaricp.connections.usage")
+                .header(HttpHeaders.AUTHORIZATION, basic("metrics", METRICS_PASSWORD)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/health")
+                .with(request -> {
+                    request.setRemoteAddr("203.0.113.7");
+                    return request;
+                }))
+                .andExpect(status().isOk());
+    }
+
+    private static String basic(String user, String password) {
+        return "Basic " + Base64.getEncoder().encodeToString((user + ":" + password).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Testa que a busca textual ignora acentos e plural e traz primeiro o
+     * produto mais relevante
+     *
+     * @throws Exception
+     *              Lança Excelções
+     */
+    @Test
+    void testSearchProducts() throws Exception {
+        mockMvc.perform(get("/product/search")
+                .param("q", "descricoes 7")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name", is("Produto 7")))
+                .andExpect(jsonPath("$[0].images.length()", is(2)));
+
+        mockMvc.perform(get("/product/search")
+                .param("q", " ")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Testa que o autocompletar sugere nomes pelo início de qualquer palavra,
+     * sem acentos, com o produto alterado mais recentemente primeiro
+     *
+     * @throws Exception
+     *              Lança Excelções
+     */
+    @Test
+    void testSuggestProducts() throws Exception {
+        MockPart product = productPart("""
+            {
+                "name": "Suco de Maçã",
+                "categories": "Frutas",
+                "unit": "l",
+                "price": 12.0,
+                "quantity": 5
+            }
+        """.getBytes(StandardCharsets.UTF_8));
+        mockMvc.perform(multipart("/product")
+                .part(product)
+                .param("userId", "u0"))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/product/suggest")
+                .param("prefix", "MAÇ")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(1)))
+                .andExpect(jsonPath("$[0]", is("Suco de Maçã")));
+
+        mockMvc.perform(get("/product/suggest")
+                .param("prefix", "produto 99")
+                .param("size", "5")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(5)));
+    }
+
+    /**
+     * Testa que o produto é aceito na criação e na atualização quando a parte
+     * {@code product} chega sem {@code Content-Type}
+     *
+     * @throws Exception
+     *              Lança Excelções
+     */
+    @Test
+    void testProductPartWithoutContentType() throws Exception {
+        String id = new ObjectMapper().readTree(mockMvc.perform(multipart("/product")
+                .part(new MockPart("product", """
+                    {
+                        "name": "Pêssego",
+                        "categories": "Frutas",
+                        "unit": "kg",
+                        "price": 15.0,
+                        "quantity": 4
+                    }
+                """.getBytes(StandardCharsets.UTF_8)))
+                .param("userId", "u0"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.name", is("Pêssego")))
+                .andReturn().getResponse().getContentAsString()).get("id").asText();
+
+        mockMvc.perform(multipart(HttpMethod.PUT, "/product/{id}", id)
+                .part(new MockPart("product", """
+                    {
+                        "name": "Pêssego",
+                        "categories": "Frutas",
+                        "unit": "kg",
+                        "price": 14.0,
+                        "quantity": 6
+                    }
+                """.getBytes(StandardCharsets.UTF_8)))
+                .param("userId", "u0"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.quantity", is(6)));
+
+        mockMvc.perform(multipart("/product")
+                .part(new MockPart("product", "{".getBytes(StandardCharsets.UTF_8)))
+                .param("userId", "u0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Parte {@code product} em JSON, como enviada pelo navegador
+     */
+    private static MockPart productPart(byte[] json) {
+        MockPart part = new MockPart("product", json);
+        part.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        return part;
+    }
+
+    /**
+     * Testa que a busca aproximada encontra produtos com erro de digitação e
+     * sugere a busca corrigida
+     *
+     * @throws Exception
+     *              Lança Excelções
+     */
+    @Test
+    void testFuzzySearchProducts() throws Exception {
+        mockMvc.perform(get("/product/search")
+                .param("q", "prodtuo 42")
+                .param("fuzzy", "true")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Did-You-Mean", "produto 42"))
+                .andExpect(jsonPath("$[0].name", is("Produto 42")));
+
+        mockMvc.perform(get("/product/search")
+                .param("q", "prduto")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Did-You-Mean", "produto"))
+                .andExpect(jsonPath("$.length()", is(0)));
+    }
+
+    /**
+     * Testa que a busca aproximada encontra uma palavra curta com duas letras
+     * vizinhas trocadas, edição que altera quatro trigramas
+     *
+     * @throws Exception
+     *              Lança Excelções
+     */
+    @Test
+    void testFuzzySearchTransposition() throws Exception {
+        productRepository.save(new Product("Limão", Category.Frutas, "Limão taiti", "kg", 4.0,
+                new ArrayList<>(), 10, userRepository.findById("u1").orElseThrow()));
+        indexService.rebuild();
+
+        mockMvc.perform(get("/product/search")
+                .param("q", "lmiao")
+                .param("fuzzy", "true")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Did-You-Mean", "limao"))
+                .andExpect(jsonPath("$[0].name", is("Limão")));
+    }
+
+    /**
+     * Testa o filtro combinado por faixa de preço e vendedor e as contagens
+     * das facetas
+     *
+     * @throws Exception
+     *              Lança Excelções
+     */
+    @Test
+    void testFilterProducts() throws Exception {
+        mockMvc.perform(get("/product/filter")
+                .param("category", "Frutas")
+                .param("priceBand", "0-5", "5-10")
+                .param("userId", "u3")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total", is(1)))
+                .andExpect(jsonPath("$.ids.length()", is(1)))
+                .andExpect(jsonPath("$.facets.category.Frutas", is(1)))
+                .andExpect(jsonPath("$.facets.priceBand['10-20']", is(1)))
+                .andExpect(jsonPath("$.facets.userId.u3", is(1)))
+                .andExpect(jsonPath("$.facets.userId.u4", is(1)));
+
+        JsonNode first = new ObjectMapper().readTree(mockMvc.perform(get("/product/filter")
+                .param("size", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total", is(CATALOG_SIZE)))
+                .andExpect(jsonPath("$.ids.length()", is(3)))
+                .andReturn().getResponse().getContentAsByteArray()).get("ids");
+        assertTrue(first.get(0).asLong() < first.get(1).asLong() && first.get(1).asLong() < first.get(2).asLong());
+
+        mockMvc.perform(get("/product/filter")
+                .param("size", "3")
+                .param("after", first.get(2).asText()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ids[0]", is(first.get(2).asInt() + 1)));
+
+        mockMvc.perform(get("/product/filter")
+                .param("priceBand", "barato"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Testa a consulta dinâmica combinando categoria, faixa de preço, estoque
+     * e vendedor
+     *
+     * @throws Exception
+     *              Lança Excelções
+     */
+    @Test
+    void testQueryProducts() throws Exception {
+        mockMvc.perform(get("/product/query")
+                .param("category", "Frutas")
+                .param("minPrice", "10")
+                .param("maxPrice", "40")
+                .param("inStock", "true")
+                .param("userId", "u3")
+                .param("sort", "price,desc")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(3)))
+                .andExpect(jsonPath("$[0].name", is("Produto 33")))
+                .andExpect(jsonPath("$[2].name", is("Produto 13")));
+
+        mockMvc.perform(get("/product/query")
+                .param("minPrice", "20")
+                .param("maxPrice", "10"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Testa que a busca em lote preserva a ordem pedida, informa os
+     * identificadores inexistentes e executa um número fixo de consultas
+     *
+     * @throws Exception
+     *              Lança Excelções
+     */
+    @Test
+    void testGetProductsByIds() throws Exception {
+        List<Long> ids = productRepository.findAll().stream().map(Product::getId).sorted().limit(3).toList();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(get("/product/batch")
+                .param("ids", ids.get(2) + "," + ids.get(0) + ",-1," + ids.get(1))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.products.length()", is(3)))
+                .andExpect(jsonPath("$.products[0].id", is(ids.get(2).intValue())))
+                .andExpect(jsonPath("$.products[1].id", is(ids.get(0).intValue())))
+                .andExpect(jsonPath("$.products[0].images.length()", is(2)))
+                .andExpect(jsonPath("$.missing[0]", is(-1)));
+
+        assertTrue(statistics.getPrepareStatementCount() <= 2,
+                "Consultas executadas na busca em lote: " + statistics.getPrepareStatementCount());
+
+        mockMvc.perform(post("/product/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[" + ids.get(1) + ", 0]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.products[0].id", is(ids.get(1).intValue())))
+                .andExpect(jsonPath("$.missing[0]", is(0)));
+    }
+
+    /**
+     * Testa que o parâmetro fields devolve apenas os campos pedidos e só
+     * consulta as imagens quando elas forem pedidas
+     *
+     * @throws Exception
+     *              Lança Excelções
+     */
+    @Test
+    void testSparseFields() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(get("/product/user/u3")
+                .param("fields", "price,name,id")
+                .param("sort", "price,desc")
+                .param("size", "5")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("X-Next-Cursor"))
+                .andExpect(jsonPath("$.length()", is(5)))
+                .andExpect(jsonPath("$[0].name").exists())
+                .andExpect(jsonPath("$[0].price").exists())
+                .andExpect(jsonPath("$[0].description").doesNotExist())
+                .andExpect(jsonPath("$[0].images").doesNotExist());
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        List<Long> ids = productRepository.findAll().stream().map(Product::getId).sorted().limit(2).toList();
+        statistics.clear();
+        mockMvc.perform(get("/product/batch")
+                .param("ids", ids.get(1) + "," + ids.get(0))
+                .param("fields", "id,images,categories")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.products[0].id", is(ids.get(1).intValue())))
+                .andExpect(jsonPath("$.products[0].images.length()", is(2)))
+                .andExpect(jsonPath("$.products[0].categories").isString())
+                .andExpect(jsonPath("$.products[0].name").doesNotExist());
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+
+        mockMvc.perform(get("/product")
+                .param("fields", "id,name")
+                .param("size", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(3)))
+                .andExpect(jsonPath("$[0].unit").doesNotExist());
+
+        mockMvc.perform(get("/product")
+                .param("fields", "id,createDate"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Testa que o cabeçalho Accept escolhe entre JSON, CBOR e Smile, com os
+     * mesmos dados nos três formatos
+     *
+     * @throws Exception
+     *              Lança Excelções
+     */
+    @Test
+    void testBinaryFormats() throws Exception {
+        MvcResult json = mockMvc.perform(get("/product").param("size", "20")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn();
+        MvcResult cbor = mockMvc.perform(get("/product").param("size", "20")
+                .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_CBOR_VALUE))
+                .andReturn();
+
+        JsonNode expected = new ObjectMapper().readTree(json.getResponse().getContentAsByteArray());
+        assertEquals(expected, new CBORMapper().readTree(cbor.getResponse().getContentAsByteArray()));
+        assertTrue(cbor.getResponse().getContentLength() < json.getResponse().getContentLength());
+        assertNotEquals(json.getResponse().getHeader(HttpHeaders.ETAG), cbor.getResponse().getHeader(HttpHeaders.ETAG));
+
+        Long id = expected.get(0).get("id").asLong();
+        MvcResult smile = mockMvc.perform(get("/product/{id}", id)
+                .accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertEquals(expected.get(0), new SmileMapper().readTree(smile.getResponse().getContentAsByteArray()));
+
+        mockMvc.perform(get("/product").accept(MediaType.TEXT_PLAIN))
+                .andExpect(status().isNotAcceptable());
+
+        mockMvc.perform(get("/product").param("size", "20")
+                .accept("*/*, application/cbor"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_CBOR_VALUE));
+        mockMvc.perform(get("/product").param("size", "20")
+                .accept("application/cbor;q=0.5, application/json"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE));
+    }
+
+    /**
+     * Testa a entrega de uma imagem enviada no cadastro: nome pelo conteúdo,
+     * validadores, 304 nas requisições condicionais, trechos com Range e a
+     * listagem paginada do diretório
+     *
+     * @throws Exception
+     *              Lança Excelções
+     */
+    @Test
+    void testServeImage() throws Exception {
+        byte[] content = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+        MockPart product = productPart("""
+            {
+                "name": "Abacate",
+                "categories": "Frutas",
+                "unit": "kg",
+                "price": 9.9,
+                "quantity": 4
+            }
+        """.getBytes());
+        String url = new ObjectMapper().readTree(mockMvc.perform(multipart("/product")
+                .part(product)
+                .file(new MockMultipartFile("images", "teste-range.png", MediaType.IMAGE_PNG_VALUE, content))
+                .param("userId", "u0"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsByteArray()).get("images").get(0).asText();
+        String filename = url.substring(url.lastIndexOf('/') + 1);
+        assertTrue(filename.matches("[0-9a-f]{64}\\.png"));
+
+        mockMvc.perform(multipart("/product")
+                .part(product)
+                .file(new MockMultipartFile("images", "Outro Nome.PNG", MediaType.IMAGE_PNG_VALUE, content))
+                .param("userId", "u1"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.images[0]", is(url)));
+
+        MvcResult full = mockMvc.perform(get("/product/images/{filename}", filename))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, MediaType.IMAGE_PNG_VALUE))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "public, max-age=31536000, immutable"))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andReturn();
+        assertArrayEquals(content, full.getResponse().getContentAsByteArray());
+        String etag = full.getResponse().getHeader(HttpHeaders.ETAG);
+        assertEquals("\"" + filename.substring(0, 64) + "\"", etag);
+
+        mockMvc.perform(get("/product/images/{filename}", filename)
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/product/images/{filename}", filename)
+                .header(HttpHeaders.IF_MODIFIED_SINCE, full.getResponse().getHeader(HttpHeaders.LAST_MODIFIED)))
+                .andExpect(status().isNotModified());
+
+        MvcResult partial = mockMvc.perform(get("/product/images/{filename}", filename)
+                .header(HttpHeaders.RANGE, "bytes=2-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-5/16"))
+                .andReturn();
+        assertEquals("2345", partial.getResponse().getContentAsString());
+        mockMvc.perform(get("/product/images/{filename}", filename)
+                .header(HttpHeaders.RANGE, "bytes=-3"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 13-15/16"));
+        mockMvc.perform(get("/product/images/{filename}", filename)
+                .header(HttpHeaders.RANGE, "bytes=0-3")
+                .header(HttpHeaders.IF_RANGE, "\"outra\""))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/product/images/{filename}", filename)
+                .header(HttpHeaders.RANGE, "bytes=16-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */16"));
+
+        mockMvc.perform(get("/product/images/nao-existe.png"))
+                .andExpect(status().isNotFound());
+
+        MvcResult fallback = awaitVariant(filename, "thumb");
+        assertEquals("public, max-age=86400", fallback.getResponse().getHeader(HttpHeaders.CACHE_CONTROL));
+        assertArrayEquals(content, fallback.getResponse().getContentAsByteArray());
+        mockMvc.perform(get("/product/images/{filename}", filename).param("size", "enorme"))
+                .andExpect(status().isBadRequest());
+
+        List<String> listed = new ArrayList<>();
+        String cursor = null;
+        do {
+            MvcResult page = mockMvc.perform(get("/product/check-images")
+                    .param("size", "1")
+                    .param("cursor", cursor))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()", is(1)))
+                    .andReturn();
+            listed.add(new ObjectMapper().readTree(page.getResponse().getContentAsByteArray()).get(0).asText());
+            cursor = page.getResponse().getHeader(CursorPage.NEXT_CURSOR_HEADER);
+        } while (cursor != null);
+        assertTrue(listed.contains(filename));
+        assertEquals(listed.stream().sorted().distinct().toList(), listed);
+    }
+
+    /**
+     * Testa que as versões reduzidas são geradas em segundo plano após o
+     * cadastro, mantendo a proporção e sem ampliar imagens menores
+     *
+     * @throws Exception
+     *              Lança Excelções
+     */
+    @Test
+    void testImageVariants() throws Exception {
+        BufferedImage photo = new BufferedImage(600, 300, BufferedImage.TYPE_INT_RGB);
+        photo.setRGB(0, 0, 0xFF0000);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(photo, "png", png);
+        MockPart product = productPart("""
+            {
+                "name": "Manga",
+                "categories": "Frutas",
+                "unit": "kg",
+                "price": 7.5,
+                "quantity": 2
+            }
+        """.getBytes());
+        String url = new ObjectMapper().readTree(mockMvc.perform(multipart("/product")
+                .part(product)
+                .file(new MockMultipartFile("images", "manga.png", MediaType.IMAGE_PNG_VALUE, png.toByteArray()))
+                .param("userId", "u0"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsByteArray()).get("images").get(0).asText();
+        String filename = url.substring(url.lastIndexOf('/') + 1);
+
+        MvcResult thumb = awaitVariant(filename, "thumb");
+        assertEquals("\"" + filename.substring(0, 64) + "_thumb\"", thumb.getResponse().getHeader(HttpHeaders.ETAG));
+        BufferedImage small = ImageIO.read(new ByteArrayInputStream(thumb.getResponse().getContentAsByteArray()));
+        assertEquals(200, small.getWidth());
+        assertEquals(100, small.getHeight());
+
+        MvcResult medium = awaitVariant(filename, "medium");
+        assertEquals(600, ImageIO.read(new ByteArrayInputStream(medium.getResponse().getContentAsByteArray())).getWidth());
+    }
+
+    /**
+     * Testa que uma imagem acima do limite de pixels não é decodificada e
+     * que, sem versão possível, a original é entregue com o cache dos nomes
+     * antigos em vez de sem cache; imagens largas continuam reduzidas
+     *
+     * @throws Exception
+     *              Lança Excelções
+     */
+    @Test
+    void testImageVariantLimits() throws Exception {
+        double tooLarge = meterRegistry.counter("teal.image.variants", "result", "too-large").count();
+        byte[] huge = png(1100, 1000);
+        String hugeName = upload("mamao.png", huge);
+
+        MvcResult original = awaitVariant(hugeName, "thumb");
+        assertEquals("public, max-age=86400", original.getResponse().getHeader(HttpHeaders.CACHE_CONTROL));
+        assertArrayEquals(huge, original.getResponse().getContentAsByteArray());
+        assertEquals(tooLarge + 1, meterRegistry.counter("teal.image.variants", "result", "too-large").count());
+
+        String wideName = upload("cana.png", png(3300, 100));
+        BufferedImage medium = ImageIO.read(new ByteArrayInputStream(
+                awaitVariant(wideName, "medium").getResponse().getContentAsByteArray()));
+        assertEquals(800, medium.getWidth());
+        assertEquals(24, medium.getHeight());
+
+        String legacy = "legado-" + System.nanoTime() + ".png";
+        Path legacyFile = Paths.get(UPLOAD_DIR, "product-images", legacy);
+        Files.write(legacyFile, png(10, 10));
+        try {
+            mockMvc.perform(get("/product/images/{filename}", legacy).param("size", "thumb"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "public, max-age=86400"));
+        } finally {
+            Files.deleteIfExists(legacyFile);
+        }
+    }
+
+    /**
+     * Testa que uma imagem com cabeçalho válido e conteúdo corrompido, depois
+     * das tentativas de geração, deixa de ser entregue sem cache
+     *
+     * @throws Exception
+     *              Lança Excelções
+     */
+    @Test
+    void testCorruptImageStopsRetrying() throws Exception {
+        double failed = meterRegistry.counter("teal.image.variants", "result", "failed").count();
+        byte[] corrupt = png(300, 200);
+        // mantém a assinatura e o IHDR, com as dimensões, e estraga os dados comprimidos
+        for (int i = 41; i < corrupt.length - 12; i++) {
+            corrupt[i] = (byte) 0xA5;
+        }
+        String name = upload("goiaba.png", corrupt);
+
+        MvcResult original = awaitVariant(name, "thumb");
+        assertEquals("public, max-age=86400", original.getResponse().getHeader(HttpHeaders.CACHE_CONTROL));
+        assertArrayEquals(corrupt, original.getResponse().getContentAsByteArray());
+        assertEquals(failed + 3, meterRegistry.counter("teal.image.variants", "result", "failed").count());
+    }
+
+    private String upload(String name, byte[] content) throws Exception {
+        MockPart product = productPart("""
+            {
+                "name": "Fruta grande",
+                "categories": "Frutas",
+                "unit": "kg",
+                "price": 3.5,
+                "quantity": 2
+            }
+        """.getBytes());
+        String url = new ObjectMapper().readTree(mockMvc.perform(multipart("/product")
+                .part(product)
+                .file(new MockMultipartFile("images", name, MediaType.IMAGE_PNG_VALUE, content))
+                .param("userId", "u0"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsByteArray()).get("images").get(0).asText();
+        return url.substring(url.lastIndexOf('/') + 1);
+    }
+
+    private static byte[] png(int width, int height) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, (int) System.nanoTime() & 0xFFFFFF);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        return png.toByteArray();
+    }
+
+    private MvcResult awaitVariant(String filename, String size) throws Exception {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            MvcResult result = mockMvc.perform(get("/product/images/{filename}", filename).param("size", size))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            if (!"no-cache".equals(result.getResponse().getHeader(HttpHeaders.CACHE_CONTROL))) {
+                return result;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Versão " + size + " não gerada");
+    }
+
+    /**
+     * Testa que a imagem criada por uma gravação cujo produto falhou não é
+     * apagada quando outra requisição com o mesmo conteúdo ainda está em
+     * andamento ou já gravou o seu produto
+     *
+     * @throws Exception
+     *              Lança Excelções
+     */
+    @Test
+    void testSharedImageKeptWhenOneProductFails() throws Exception {
+        byte[] inFlight = ("imagem em andamento " + System.nanoTime()).getBytes(StandardCharsets.UTF_8);
+        StoredImages failed = imageStorageService.storeImages(
+                List.of(new MockMultipartFile("images", "goiaba.png", MediaType.IMAGE_PNG_VALUE, inFlight)));
+        StoredImages pending = imageStorageService.storeImages(
+                List.of(new MockMultipartFile("images", "goiaba.png", MediaType.IMAGE_PNG_VALUE, inFlight)));
+        assertEquals(failed.fileNames(), failed.created());
+        imageStorageService.discard(failed);
+        mockMvc.perform(get("/product/images/{filename}", pending.fileNames().get(0)))
+                .andExpect(status().isOk());
+        imageStorageService.confirm(pending);
+
+        byte[] committed = ("imagem gravada " + System.nanoTime()).getBytes(StandardCharsets.UTF_8);
+        failed = imageStorageService.storeImages(
+                List.of(new MockMultipartFile("images", "kiwi.png", MediaType.IMAGE_PNG_VALUE, committed)));
+        assertEquals(failed.fileNames(), failed.created());
+        MockPart product = productPart("""
+            {
+                "name": "Kiwi",
+                "categories": "Frutas",
+                "unit": "kg",
+                "price": 11.0,
+                "quantity": 3
+            }
+        """.getBytes());
+        mockMvc.perform(multipart("/product")
+                .part(product)
+                .file(new MockMultipartFile("images", "kiwi.png", MediaType.IMAGE_PNG_VALUE, committed))
+                .param("userId", "u0"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.images[0]", is(failed.urls().get(0))));
+        imageStorageService.discard(failed);
+        mockMvc.perform(get("/product/images/{filename}", failed.fileNames().get(0)))
+                .andExpect(status().isOk());
+    }
+
+    /**
+     * Testa que as imagens novas são apagadas quando a escrita do produto
+     * falha e que os tempos de gravação e de uso das conexões são publicados
+     *
+     * @throws Exception
+     *              Lança Excelções
+     */
+    @Test
+    void testImagesDiscardedWhenProductFails() throws Exception {
+        byte[] content = ("imagem órfã " + System.nanoTime()).getBytes(StandardCharsets.UTF_8);
+        String filename = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content)) + ".png";
+        MockPart product = productPart("""
+            {
+                "name": "Caqui",
+                "categories": "Frutas",
+                "unit": "kg",
+                "price": 6.5,
+                "quantity": 1
+            }
+        """.getBytes());
+        mockMvc.perform(multipart("/product")
+                .part(product)
+                .file(new MockMultipartFile("images", "caqui.png", MediaType.IMAGE_PNG_VALUE, content))
+                .param("userId", "nao-existe"))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/product/images/{filename}", filename))
+                .andExpect(status().isNotFound());
+        assertTrue(meterRegistry.get("teal.product.images.store").timer().count() > 0);
+        assertTrue(meterRegistry.get("hikaricp.connections.usage").timer().count() > 0);
+    }
+}
@@ -1,13 +1,22 @@
 package br.com.foods.teal.controller;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,25 +24,48 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.server.ResponseStatusException;
 
+import br.com.foods.teal.model.User;
+import br.com.foods.teal.pagination.CursorPage;
 import br.com.foods.teal.repository.UserRepository;
+import br.com.foods.teal.services.UserKeyFilter;
+import br.com.foods.teal.services.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
 
 /**
  * Classe para teste de integração do usuário
  * 
  * @author Caio Pereira Leal 
  */
-@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT,
+		properties = { "spring.jpa.properties.hibernate.generate_statistics=true",
+				"app.upload.dir=" + UserIntegrationTest.UPLOAD_DIR })
 @AutoConfigureMockMvc
 @ActiveProfiles("teste")
 public class UserIntegrationTest {
 
+	static final String UPLOAD_DIR = "target/test-uploads/user";
+
 	@Autowired
     private MockMvc mockMvc;
 	@Autowired
 	private UserRepository userRepository;
+	@Autowired
+	private MeterRegistry meterRegistry;
+	@Autowired
+	private UserKeyFilter keyFilter;
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+	@Autowired
+	private UserService userService;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
 
 	/**
 	 * Classe incia antes dos testes e deixa um usúario registrado
@@ -59,6 +91,17 @@ public class UserIntegrationTest {
                 .content(json))
                 .andExpect(status().isCreated());
     }
+
+    /**
+     * Remove o diretório de imagens criado pela aplicação nos testes
+     *
+     * @throws IOException
+     *              falha ao apagar o diretório
+     */
+    @AfterAll
+    static void removeUploads() throws IOException {
+    	FileSystemUtils.deleteRecursively(Paths.get(UPLOAD_DIR));
+    }
     
     /**
      * Testa a funcionalidade de buscar todos os registro dos usuários
@@ -78,6 +121,236 @@ public class UserIntegrationTest {
                 .andExpect(jsonPath("$[0].cpf", is("12345678900")));
     }
     
+    /**
+     * Testa que o cadastro recusa email com outra caixa e cpf com pontuação
+     * já usados, informando o campo em conflito
+     * 
+     * @throws Exception
+     *              Lança Excelções
+     */
+    @Test
+    void testCreateUserConflict() throws Exception {
+        mockMvc.perform(post("/user")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {
+                        "id": "2",
+                        "name": "Outro",
+                        "email": " TESTE@email.com",
+                        "phone": "999999999",
+                        "cpf": "99999999999"
+                    }
+                """))
+                .andExpect(status().isConflict())
+                .andExpect(result -> assertEquals("Já existe um usuário cadastrado com o email:  TESTE@email.com",
+                        ((ResponseStatusException) result.getResolvedException()).getReason()));
+
+        mockMvc.perform(post("/user")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {
+                        "id": "2",
+                        "name": "Outro",
+                        "email": "outro@email.com",
+                        "phone": "999999999",
+                        "cpf": "123.456.789-00"
+                    }
+                """))
+                .andExpect(status().isConflict())
+                .andExpect(result -> assertEquals("Já existe um usuário cadastrado com o cpf: 123.456.789-00",
+                        ((ResponseStatusException) result.getResolvedException()).getReason()));
+    }
+    
+    /**
+     * Testa a paginação por cursor da listagem de usuários
+     * 
+     * @throws Exception
+     *              Lança Excelções
+     */
+    @Test
+    void testGetAllUsersWithCursor() throws Exception {
+    	userRepository.save(new User("2", "Segundo", "segundo@email.com", "223456789", "22345678900"));
+    	userRepository.save(new User("3", "Terceiro", "terceiro@email.com", "323456789", "32345678900"));
+
+        String cursor = mockMvc.perform(get("/user")
+                .param("size", "2")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(2)))
+                .andExpect(jsonPath("$[0].id", is("1")))
+                .andExpect(jsonPath("$[1].id", is("2")))
+                .andReturn().getResponse().getHeader(CursorPage.NEXT_CURSOR_HEADER);
+
+        mockMvc.perform(get("/user")
+                .param("size", "2")
+                .param("cursor", cursor)
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(1)))
+                .andExpect(jsonPath("$[0].id", is("3")))
+                .andExpect(header().doesNotExist(CursorPage.NEXT_CURSOR_HEADER));
+
+        mockMvc.perform(get("/user")
+                .param("cursor", "invalido")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+    
+    /**
+     * Testa que um usuário gravado entre a verificação de unicidade e a
+     * gravação (aqui, direto no banco, fora do filtro) é recusado pela
+     * restrição do banco com a mensagem do campo em conflito, no cadastro e
+     * na atualização
+     * 
+     * @throws Exception
+     *              Lança Excelções
+     */
+    @Test
+    void testConcurrentDuplicateRejectedByConstraint() throws Exception {
+    	userRepository.save(new User("9", "Concorrente", "concorrente@email.com", "555555555", "55555555555"));
+    	double skipped = meterRegistry.counter("teal.user.filter.checks", "field", "email", "result", "new").count();
+
+        mockMvc.perform(post("/user")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {
+                        "id": "2",
+                        "name": "Outro",
+                        "email": "Concorrente@email.com",
+                        "phone": "888888888",
+                        "cpf": "88888888888"
+                    }
+                """))
+                .andExpect(status().isConflict())
+                .andExpect(result -> assertEquals("Já existe um usuário cadastrado com o email: Concorrente@email.com",
+                        ((ResponseStatusException) result.getResolvedException()).getReason()));
+        assertEquals(skipped + 1,
+        		meterRegistry.counter("teal.user.filter.checks", "field", "email", "result", "new").count());
+
+        mockMvc.perform(put("/user/{id}", "1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {
+                        "id": "1",
+                        "name": "Teste",
+                        "email": "teste@email.com",
+                        "phone": "555555555",
+                        "cpf": "12345678900"
+                    }
+                """))
+                .andExpect(status().isConflict())
+                .andExpect(result -> assertEquals("Já existe um usuário cadastrado com o telefone: 555555555",
+                        ((ResponseStatusException) result.getResolvedException()).getReason()));
+    }
+    
+    /**
+     * Testa que, com o filtro construído, email, telefone e cpf repetidos
+     * continuam recusados com a mensagem do campo e contam como possíveis,
+     * sem falso positivo
+     * 
+     * @throws Exception
+     *              Lança Excelções
+     */
+    @Test
+    void testDuplicateRejectedWithFilterBuilt() throws Exception {
+    	keyFilter.rebuild();
+    	double possible = checks("email", "possible");
+    	double falsePositives = meterRegistry.counter("teal.user.filter.false-positives", "field", "email").count();
+    	double unbuilt = checks("email", "unbuilt");
+
+        postDuplicate("teste@email.com", "999999999", "99999999999",
+        		"Já existe um usuário cadastrado com o email: teste@email.com");
+        postDuplicate("outro@email.com", "(12) 3456-789", "99999999999",
+        		"Já existe um usuário cadastrado com o telefone: (12) 3456-789");
+        postDuplicate("outro@email.com", "999999999", "123.456.789-00",
+        		"Já existe um usuário cadastrado com o cpf: 123.456.789-00");
+
+        assertEquals(possible + 1, checks("email", "possible"));
+        assertEquals(falsePositives,
+        		meterRegistry.counter("teal.user.filter.false-positives", "field", "email").count());
+        assertEquals(unbuilt, checks("email", "unbuilt"));
+    }
+    
+    /**
+     * Testa que um usuário com email, telefone e cpf que o filtro sabe serem
+     * novos é gravado sem a consulta de unicidade
+     * 
+     * @throws Exception
+     *              Lança Excelções
+     */
+    @Test
+    void testNewUserSkipsConflictQuery() throws Exception {
+    	keyFilter.rebuild();
+    	double email = checks("email", "new");
+    	double phone = checks("phone", "new");
+    	double cpf = checks("cpf", "new");
+    	Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    	statistics.clear();
+
+        mockMvc.perform(post("/user")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {
+                        "id": "2",
+                        "name": "Novo",
+                        "email": "novo@email.com",
+                        "phone": "777777777",
+                        "cpf": "77777777777"
+                    }
+                """))
+                .andExpect(status().isCreated());
+
+        assertEquals(0, statistics.getQueryExecutionCount());
+        assertEquals(email + 1, checks("email", "new"));
+        assertEquals(phone + 1, checks("phone", "new"));
+        assertEquals(cpf + 1, checks("cpf", "new"));
+    }
+    
+    /**
+     * Testa que o preenchimento das chaves de usuários antigos não falha
+     * quando dois registros só coincidem depois de normalizados: o primeiro
+     * recebe as chaves e o outro fica sem elas
+     */
+    @Test
+    void testBackfillSkipsNormalizedCollision() {
+    	jdbcTemplate.update("insert into tb_user (id, name, email, phone, cpf) values (?, ?, ?, ?, ?)",
+    			"legado-a", "Legado A", " Legado@email.com", "(11) 2222-333", "987.654.321-00");
+    	jdbcTemplate.update("insert into tb_user (id, name, email, phone, cpf) values (?, ?, ?, ?, ?)",
+    			"legado-b", "Legado B", "outro.legado@email.com", "112222333", "11111111111");
+
+    	userService.backfillKeys();
+
+    	User first = userRepository.findById("legado-a").orElseThrow();
+    	assertEquals("legado@email.com", first.getEmailKey());
+    	assertEquals("112222333", first.getPhoneKey());
+    	assertEquals("98765432100", first.getCpfKey());
+    	User second = userRepository.findById("legado-b").orElseThrow();
+    	assertNull(second.getEmailKey());
+    	assertNull(second.getPhoneKey());
+    	assertNull(second.getCpfKey());
+    }
+    
+    private void postDuplicate(String email, String phone, String cpf, String reason) throws Exception {
+        mockMvc.perform(post("/user")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    {
+                        "id": "2",
+                        "name": "Outro",
+                        "email": "%s",
+                        "phone": "%s",
+                        "cpf": "%s"
+                    }
+                """.formatted(email, phone, cpf)))
+                .andExpect(status().isConflict())
+                .andExpect(result -> assertEquals(reason,
+                        ((ResponseStatusException) result.getResolvedException()).getReason()));
+    }
+    
+    private double checks(String field, String result) {
+    	return meterRegistry.counter("teal.user.filter.checks", "field", field, "result", result).count();
+    }
+    
     /**
      * Testa a funcionalidade de buscar um registro de usuário expecifico
      * 